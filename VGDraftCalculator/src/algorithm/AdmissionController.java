@@ -0,0 +1,252 @@
+package algorithm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import data.Pick;
+import draft.DraftSession;
+
+/**
+ * Graceful degradation for an {@link Engine} under load: each request is {@link #admit() admitted} on arrival,
+ * and once it gets to run, it is served by the best {@link Tier} the current load allows,
+ * rather than every request running the full search and all of them slowing down together.
+ * <p>
+ * Load is judged by two measures: work in flight (admitted and not yet closed, whether running or waiting),
+ * and how long this request waited to start. Answers the engine already has (from its result cache or opening book)
+ * cost nothing, so they are served in full at any load.
+ * <p>
+ * Thread-safe; settings may change at any time and apply to requests starting after.
+ * Each request is served by the engine current when it was admitted (see {@link MatrixProvider}), to the end.
+ */
+public class AdmissionController {
+
+	/**
+	 * How a request was served, from best to cheapest
+	 */
+	public enum Tier {
+		/** the engine's own algorithm and settings */
+		FULL,
+		/** {@link Algorithm#ITERATIVE_DEEPENING iterative deepening} within a short budget */
+		SHALLOW,
+		/** {@link Algorithm#GREEDY greedy} fills only */
+		GREEDY
+	}
+
+	private static final double DELAY_SMOOTHING = 0.1; // weight of each new sample in the moving average
+
+	private final Supplier<Engine> engines;
+	private volatile int fullLimit;
+	private volatile int shallowLimit;
+	private volatile long fullWaitNanos = TimeUnit.MILLISECONDS.toNanos(25);
+	private volatile long shallowWaitNanos = TimeUnit.MILLISECONDS.toNanos(250);
+	private volatile Budget shallowBudget = Budget.millis(20);
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile double queueDelayNanos; // moving average; racy updates only lose samples
+	private final LongAdder[] served = new LongAdder[Tier.values().length];
+
+	/**
+	 * @param capacity searches that run at once (e.g. compute threads):
+	 * 		full searches are served while at most twice that many are in flight, shallow ones up to eight times
+	 */
+	public AdmissionController(Engine engine, int capacity) {
+		this(() -> engine, capacity);
+	}
+
+	/**
+	 * @param engines the engine for each request, e.g. a {@link MatrixProvider}
+	 */
+	public AdmissionController(Supplier<Engine> engines, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		this.engines = engines;
+		this.fullLimit = 2 * capacity;
+		this.shallowLimit = 8 * capacity;
+		for (int i = 0; i < served.length; i++)
+			served[i] = new LongAdder();
+	}
+
+	/**
+	 * @return the engine new requests are served by
+	 */
+	public Engine getEngine() { return engines.get(); }
+
+	/**
+	 * @return most requests in flight for a {@link Tier#FULL full} search; past it, requests are served cheaper
+	 */
+	public int getFullLimit() { return fullLimit; }
+	public void setFullLimit(int fullLimit) { this.fullLimit = fullLimit; }
+
+	/**
+	 * @return most requests in flight for a {@link Tier#SHALLOW shallow} search; past it, requests are served greedily
+	 */
+	public int getShallowLimit() { return shallowLimit; }
+	public void setShallowLimit(int shallowLimit) { this.shallowLimit = shallowLimit; }
+
+	/**
+	 * @return longest wait to start after which a request is no longer searched in full
+	 */
+	public long getFullWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(fullWaitNanos); }
+	public void setFullWaitMillis(long millis) { this.fullWaitNanos = TimeUnit.MILLISECONDS.toNanos(millis); }
+
+	/**
+	 * @return longest wait to start after which a request is served greedily
+	 */
+	public long getShallowWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(shallowWaitNanos); }
+	public void setShallowWaitMillis(long millis) { this.shallowWaitNanos = TimeUnit.MILLISECONDS.toNanos(millis); }
+
+	/**
+	 * @return what a {@link Tier#SHALLOW shallow} search may spend
+	 */
+	public Budget getShallowBudget() { return shallowBudget; }
+	public void setShallowBudget(Budget shallowBudget) { this.shallowBudget = shallowBudget; }
+
+	/**
+	 * @return requests admitted and not yet closed
+	 */
+	public int inFlight() { return inFlight.get(); }
+
+	/**
+	 * @return moving average of how long requests waited to start, in milliseconds
+	 */
+	public double queueDelayMillis() { return queueDelayNanos / 1e6; }
+
+	/**
+	 * @return requests served by the tier so far
+	 */
+	public long served(Tier tier) { return served[tier.ordinal()].sum(); }
+
+	/**
+	 * Counts a request in as soon as it arrives, before it waits for a thread to run on. Close it when done.
+	 */
+	public Admission admit() {
+		inFlight.incrementAndGet();
+		return new Admission(System.nanoTime());
+	}
+
+	private Tier tier(long waitedNanos) {
+		queueDelayNanos += DELAY_SMOOTHING * (waitedNanos - queueDelayNanos);
+		int load = inFlight.get();
+		if (load <= fullLimit && waitedNanos <= fullWaitNanos)
+			return Tier.FULL;
+		if (load <= shallowLimit && waitedNanos <= shallowWaitNanos)
+			return Tier.SHALLOW;
+		return Tier.GREEDY;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("AdmissionController[%d in flight, %.1f ms queue delay: %d full, %d shallow, %d greedy]",
+				inFlight(), queueDelayMillis(), served(Tier.FULL), served(Tier.SHALLOW), served(Tier.GREEDY));
+	}
+
+	/**
+	 * One admitted request. Its tier is settled by the first call that serves it,
+	 * from the load at that moment; serve it once, where it runs, then close it.
+	 */
+	public class Admission implements AutoCloseable {
+
+		private final Engine engine = engines.get();
+		private final long admitted;
+		private Tier tier;
+		private boolean closed;
+
+		private Admission(long admitted) {
+			this.admitted = admitted;
+		}
+
+		/**
+		 * @return how the request is served; {@code null} until it starts
+		 */
+		public synchronized Tier getTier() {
+			return tier;
+		}
+
+		/**
+		 * @param known whether the engine has the full answer already, so serving it in full costs nothing
+		 */
+		private synchronized Tier start(boolean known) {
+			if (tier == null) {
+				Tier given = tier(System.nanoTime() - admitted);
+				tier = known ? Tier.FULL : given;
+				served[tier.ordinal()].increment();
+			}
+			return tier;
+		}
+
+		/**
+		 * @see Engine#suggestions(DraftSession)
+		 */
+		public List<Pick> suggestions(DraftSession session) {
+			switch (start(engine.inBook(session.getState()))) {
+				case FULL:
+					return engine.suggestions(session);
+				case SHALLOW:
+					return engine.suggestions(session, Algorithm.ITERATIVE_DEEPENING, shallowBudget);
+				default:
+					return engine.suggestions(session, Algorithm.GREEDY);
+			}
+		}
+
+		/**
+		 * @see Engine#coachMeSenpai(String, List)
+		 */
+		public Map<String, Integer> coachMeSenpai(String draftFormat, final List<String> selected) {
+			DraftSession session = engine.session(draftFormat, selected);
+			if (start(engine.hasAdvice(session.getState())) == Tier.FULL)
+				return engine.coachMeSenpai(draftFormat, selected);
+			return degraded(session, null);
+		}
+
+		/**
+		 * Served cheaper, the session is left as it is; it catches up on the next full call.
+		 *
+		 * @see Engine#coachMeSenpai(String, String, List)
+		 */
+		public Map<String, Integer> coachMeSenpai(String sessionId, String draftFormat, final List<String> selected) {
+			DraftSession session = engine.session(draftFormat, selected);
+			if (start(false) == Tier.FULL)
+				return engine.coachMeSenpai(sessionId, draftFormat, selected);
+			return degraded(session, null);
+		}
+
+		/**
+		 * @see Engine#coachMeSenpai(String, List, long)
+		 */
+		public Map<String, Integer> coachMeSenpai(String draftFormat, final List<String> selected, long budgetMillis) {
+			DraftSession session = engine.session(draftFormat, selected);
+			if (start(false) == Tier.FULL)
+				return engine.coachMeSenpai(draftFormat, selected, budgetMillis);
+			return degraded(session, Budget.millis(budgetMillis));
+		}
+
+		/**
+		 * @param budget the request's own, if any
+		 */
+		private Map<String, Integer> degraded(DraftSession session, Budget budget) {
+			if (session.isFull())
+				return engine.advice(session, null);
+			if (tier == Tier.GREEDY)
+				return engine.advice(session, engine.suggestions(session, Algorithm.GREEDY));
+			Budget shallow = shallowBudget;
+			if (budget != null && budget.getNanos() < shallow.getNanos())
+				shallow = budget;
+			return engine.advice(session, engine.suggestions(session, Algorithm.ITERATIVE_DEEPENING, shallow));
+		}
+
+		/**
+		 * Counts the request out of the load; only the first call counts
+		 */
+		@Override
+		public synchronized void close() {
+			if (!closed) {
+				closed = true;
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package algorithm;
+
+/**
+ * The picking algorithms {@link Engine#suggestions(draft.DraftSession, Algorithm)} can run.
+ */
+public enum Algorithm {
+	/** the default; beam-style tree search that dives deeply into the most promising options, a fixed number at each node */
+	PRUNING,
+	/** one greedy fill per candidate */
+	GREEDY,
+	/** half baked; ranks heroes by raw partner and counter edges */
+	PRIORITY,
+	/** depth-limited minimax with alpha-beta cutoffs */
+	ALPHA_BETA,
+	/** alpha-beta at increasing depths until its {@link Budget} runs out */
+	ITERATIVE_DEEPENING,
+	/** Monte Carlo Tree Search with greedy playouts; stops when its {@link Budget} runs out */
+	MONTE_CARLO,
+	/** depth-limited minimax that skips options whose bound cannot beat what is already found; only if asked for */
+	BRANCH_AND_BOUND
+}
@@ -0,0 +1,56 @@
+package algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how much work an anytime search may do: a wall-clock allowance, an iteration count, or both. 
+ * Whichever runs out first ends the search.
+ */
+public final class Budget {
+
+	private static final long UNLIMITED = Long.MAX_VALUE;
+
+	private final long nanos;
+	private final long iterations;
+
+	private Budget(long nanos, long iterations) {
+		if (nanos <= 0 || iterations <= 0)
+			throw new IllegalArgumentException("Budget must be positive: " + nanos + "ns, " + iterations + " iterations");
+		this.nanos = nanos;
+		this.iterations = iterations;
+	}
+
+	public static Budget millis(long millis) {
+		return new Budget(TimeUnit.MILLISECONDS.toNanos(millis), UNLIMITED);
+	}
+
+	public static Budget iterations(long iterations) {
+		return new Budget(UNLIMITED, iterations);
+	}
+
+	/**
+	 * @return this budget, additionally capped at the given number of iterations
+	 */
+	public Budget andIterations(long iterations) {
+		return new Budget(nanos, Math.min(this.iterations, iterations));
+	}
+
+	public long getNanos() { return nanos; }
+	public long getIterations() { return iterations; }
+	public boolean isTimed() { return nanos != UNLIMITED; }
+
+	/**
+	 * @param start {@link System#nanoTime()} when the search began
+	 * @param iterationsDone iterations completed so far
+	 * @return whether the search must stop now
+	 */
+	public boolean isSpent(long start, long iterationsDone) {
+		return iterationsDone >= iterations || (isTimed() && System.nanoTime() - start >= nanos);
+	}
+
+	@Override
+	public String toString() {
+		return "Budget[" + (isTimed() ? TimeUnit.NANOSECONDS.toMillis(nanos) + "ms" : "untimed") + ", "
+				+ (iterations == UNLIMITED ? "unlimited" : iterations) + " iterations]";
+	}
+}
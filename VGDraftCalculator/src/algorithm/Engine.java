@@ -5,26 +5,245 @@ import static draft.Strategy.PICK;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import model.Node;
 import data.Calculator;
 import data.Hero;
+import data.HeroMask;
+import data.HeroMatrix;
 import data.Pick;
 import draft.DraftSession;
+import draft.DraftState;
+import draft.DraftTally;
 import draft.Format;
 import draft.Roster;
 import draft.Strategy;
 
 public class Engine {
 	
+	private static final int DEFAULT_TABLE_SIZE = 1 << 16;
+	private static final int DEFAULT_SEARCH_DEPTH = 3;
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 3;
+	private static final Budget DEFAULT_BUDGET = Budget.millis(200);
+	private static final double DEFAULT_EXPLORATION = 0.05;
+	private static final int DEFAULT_ENDGAME_THRESHOLD = 3;
+	private static final int DEFAULT_RESULT_CACHE_SIZE = 1 << 12;
+	// each holds a search tree, and callers of the stateless-compatible API never close theirs
+	private static final int MAX_SESSIONS = 64;
+	// bounds relax each sum on its own, so they only cut this close to the end (measured: ~45% of options
+	// with one phase left, ~3% with two, none further out), and cost more than they save beyond it
+	private static final int BOUND_HORIZON = 2;
+	
 	private Calculator scorer;
+	private TranspositionTable table;
+	private Algorithm algorithm = Algorithm.PRUNING;
+	private int searchDepth = DEFAULT_SEARCH_DEPTH;
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private Budget budget = DEFAULT_BUDGET;
+	private double exploration = DEFAULT_EXPLORATION;
+	private int endgameThreshold = DEFAULT_ENDGAME_THRESHOLD;
+	private OpeningBook book;
+	// finished advice per position, stamped with the matrix and settings it was computed from (see #stamp())
+	private final ResultCache<Map<String, Integer>> results = new ResultCache<>(DEFAULT_RESULT_CACHE_SIZE);
+	// changes to the settings that shape the advice, counted after each is made
+	private final AtomicLong settings = new AtomicLong();
+	// open sessions by id, least recently used out first; guarded by itself
+	private final Map<String, EngineSession> sessions = new LinkedHashMap<String, EngineSession>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, EngineSession> eldest) {
+			return size() > MAX_SESSIONS;
+		}
+	};
+	// exact minimax odds, kept apart from the greedy-fill odds in #table
+	private final TranspositionTable endgameTable = 
+			new TranspositionTable(DEFAULT_TABLE_SIZE, TranspositionTable.Eviction.DEPTH_PREFERRED);
+	// scratch for greedy fills; a tally is cheap to reset but not thread-safe
+	private final ThreadLocal<DraftTally> tallies;
+	private final EngineMetrics metrics;
 	
 	public Engine(Calculator calculator) {
+		this(calculator, new TranspositionTable(DEFAULT_TABLE_SIZE, TranspositionTable.Eviction.DEPTH_PREFERRED));
+	}
+	
+	public Engine(Calculator calculator, TranspositionTable table) {
+		this(calculator, table, null);
+	}
+	
+	private Engine(Calculator calculator, TranspositionTable table, EngineMetrics metrics) {
 		this.scorer = calculator;
+		this.table = table;
+		this.tallies = ThreadLocal.withInitial(calculator::tally);
+		this.metrics = metrics != null ? metrics : new EngineMetrics(this);
+	}
+	
+	/**
+	 * For a new version of the matrix: an engine over it with this one's settings, and caches of its own 
+	 * (nothing cached from the old matrix applies to the new one). 
+	 * The opening book carries over only if it was built from the new matrix (the settings being the same). 
+	 * The {@link #getMetrics() metrics} carry over too, and report on the new engine from then on.
+	 * <p>
+	 * So do the open sessions, in the same order: each is {@link EngineSession#movedTo(Engine) moved} to the new engine
+	 * under its id, at the same point of its draft but with a new search tree (a tree grown on the old matrix would 
+	 * go on answering from it). {@link #getSession(String)} and {@link #coachMeSenpai(String, String, List)} on the
+	 * new engine find them there; sessions already in hand stay on this engine.
+	 * <p>
+	 * This engine is left as it is, so searches still running on it finish as they started.
+	 */
+	public Engine reloaded(HeroMatrix matrix) {
+		Engine next = new Engine(new Calculator(matrix), 
+				new TranspositionTable(table.capacity(), table.getEviction()), metrics);
+		next.algorithm = algorithm;
+		next.searchDepth = searchDepth;
+		next.pool = pool;
+		next.parallelThreshold = parallelThreshold;
+		next.budget = budget;
+		next.exploration = exploration;
+		next.endgameThreshold = endgameThreshold;
+		if (book != null && book.isFor(matrix))
+			next.book = book;
+		List<EngineSession> open;
+		synchronized (sessions) {
+			open = new ArrayList<>(sessions.values()); // least recently used first
+		}
+		for (EngineSession session : open) { // outside the lock: moving waits for the session's search
+			EngineSession moved = session.movedTo(next);
+			synchronized (next.sessions) {
+				next.sessions.put(moved.getId(), moved);
+			}
+		}
+		metrics.attach(next);
+		return next;
+	}
+	
+	public Calculator getCalculator() {
+		return scorer;
+	}
+	
+	/**
+	 * @return the cache of greedy-fill odds shared by all searches of this engine
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+	
+	public Algorithm getAlgorithm() { return algorithm; }
+	public void setAlgorithm(Algorithm algorithm) { this.algorithm = algorithm; settingsChanged(); }
+	
+	/**
+	 * @return number of phases {@link Algorithm#ALPHA_BETA} looks ahead before falling back to a greedy fill
+	 */
+	public int getSearchDepth() { return searchDepth; }
+	public void setSearchDepth(int searchDepth) {
+		if (searchDepth < 1)
+			throw new IllegalArgumentException("Search depth must be at least 1: " + searchDepth);
+		this.searchDepth = searchDepth;
+		settingsChanged();
+	}
+	
+	/**
+	 * @return the pool {@link Algorithm#PRUNING} expands its tree on, or {@code null} if it runs sequentially
+	 */
+	public ForkJoinPool getForkJoinPool() { return pool; }
+	public void setForkJoinPool(ForkJoinPool pool) { this.pool = pool; }
+	
+	/**
+	 * @return positions with this many remaining phases or fewer are expanded sequentially
+	 */
+	public int getParallelThreshold() { return parallelThreshold; }
+	public void setParallelThreshold(int parallelThreshold) { this.parallelThreshold = parallelThreshold; }
+	
+	/**
+	 * @return default limit for anytime algorithms such as {@link Algorithm#MONTE_CARLO}
+	 */
+	public Budget getBudget() { return budget; }
+	public void setBudget(Budget budget) { this.budget = budget; settingsChanged(); }
+	
+	/**
+	 * @return UCT exploration weight for {@link Algorithm#MONTE_CARLO}
+	 */
+	public double getExploration() { return exploration; }
+	public void setExploration(double exploration) { this.exploration = exploration; settingsChanged(); }
+	
+	/**
+	 * @return {@link Algorithm#PRUNING} solves positions it reaches with this many remaining phases or fewer exactly 
+	 * 		({@link #solveEndgame(DraftState)}) instead of expanding them further; 0 never does
+	 */
+	public int getEndgameThreshold() { return endgameThreshold; }
+	public void setEndgameThreshold(int endgameThreshold) { this.endgameThreshold = endgameThreshold; settingsChanged(); }
+	
+	/**
+	 * @return precomputed suggestions for early positions, consulted before searching; or {@code null} for none
+	 */
+	public OpeningBook getOpeningBook() { return book; }
+	
+	/**
+	 * The book is consulted only while this engine {@link OpeningBook#isSearchedLike(Engine) searches like} the one that built it
+	 * 
+	 * @throws IllegalArgumentException if the book was built from another matrix than this engine's, or with other settings
+	 */
+	public void setOpeningBook(OpeningBook book) {
+		if (book != null && !book.isFor(scorer.getMatrix()))
+			throw new IllegalArgumentException("Stale opening book: built from another matrix");
+		if (book != null && !book.isSearchedLike(this))
+			throw new IllegalArgumentException("Mismatched opening book: built with search depth " + book.getSearchDepth() 
+					+ " and endgame threshold " + book.getEndgameThreshold());
+		this.book = book;
+		settingsChanged();
+	}
+	
+	/**
+	 * Retires every cached answer: lookups and stores from now on carry a newer {@link #stamp()}
+	 */
+	private void settingsChanged() {
+		settings.incrementAndGet();
+	}
+	
+	/**
+	 * The version to {@link #getResultCache() cache} an answer under: of the matrix, then of the settings. 
+	 * Read it before searching. A setter writes its field before counting the change, so a search that reads 
+	 * the new stamp sees the new settings, and one that read the old stamp (whatever it saw) stores under it, 
+	 * where the cache, having moved on, neither keeps nor finds it.
+	 */
+	private long stamp() {
+		return scorer.getMatrix().version() << 32 | settings.get();
+	}
+	
+	/**
+	 * @return the cache of {@link #coachMeSenpai(String, List)} answers
+	 */
+	public ResultCache<Map<String, Integer>> getResultCache() {
+		return results;
+	}
+	
+	/**
+	 * @return the memo of exact endgame odds
+	 */
+	public TranspositionTable getEndgameTable() {
+		return endgameTable;
+	}
+	
+	/**
+	 * @return totals and timings of every search so far
+	 */
+	public EngineMetrics getMetrics() {
+		return metrics;
 	}
 	
 	///////////////////
@@ -32,19 +251,172 @@ public class Engine {
 	///////////////////
 	
 	/**
-	* stateless
+	* stateless; answers for positions seen recently come from the {@link #getResultCache() result cache}
 	*/
 	public Map<String, Integer> coachMeSenpai (String draftFormat, final List<String> selected) {
+		return new HashMap<>(cachedAdvice(session(draftFormat, selected).getState())); // callers may change theirs
+	}
+	
+	/**
+	* {@link #coachMeSenpai(String, List)} for many drafts at once, for bulk jobs: 
+	* prefixes are merged on their common beginnings, each distinct position is evaluated once, 
+	* and evaluations run in parallel on the {@link #getForkJoinPool() pool}. 
+	* Each starts once the nearest requested prefix before it is done, from the subtree that prefix's search grew 
+	* for it, as an {@link EngineSession} following the draft would (see there for how that compares with a fresh search); 
+	* drafts with no requested prefix before them are answered just as by {@link #coachMeSenpai(String, List)}.
+	* 
+	* @return one answer per draft, in input order, each as soon as it (and those before it) are ready
+	* @throws IllegalArgumentException for an unknown hero name, before anything is evaluated
+	*/
+	public Stream<Map<String, Integer>> coachAll (String draftFormat, final List<? extends List<String>> drafts) {
+		PrefixTrie<Coached, Map<String, Integer>> trie = new PrefixTrie<>(new DraftState(Format.valueOf(draftFormat)));
+		List<PrefixTrie<Coached, Map<String, Integer>>> requested = new ArrayList<>(drafts.size());
+		for (List<String> selected : drafts)
+			requested.add(trie.add(selected));
+		trie.schedule(this::follow, this::coach, coached -> coached.advice, pool != null ? pool : ForkJoinPool.commonPool());
+		return requested.stream().map(prefix -> new HashMap<>(prefix.join()));
+	}
+	
+	/**
+	 * A prefix evaluated by {@link #coachAll}, with the search tree to continue from it, if any
+	 */
+	private static class Coached {
+		private final Map<String, Integer> advice; // not to be changed
+		private final TreeNode tree;
+		
+		Coached(Map<String, Integer> advice, TreeNode tree) {
+			this.advice = advice;
+			this.tree = tree;
+		}
+	}
+	
+	/**
+	 * @return the subtree for the next position, cut loose as {@link EngineSession#pickOrBan} does; 
+	 * 		or {@code null} if the search did not get there
+	 */
+	private Coached follow(Coached from, DraftState next) {
+		TreeNode child = from.tree == null ? null : reroot(from.tree, next);
+		return child == null ? null : new Coached(null, child);
+	}
+	
+	/**
+	 * @param from a subtree grown for the position, to continue; or {@code null} to answer afresh, 
+	 * 		as {@link #cachedAdvice(DraftState)} does
+	 */
+	private Coached coach(Coached from, DraftState state) {
+		if (algorithm != Algorithm.PRUNING || inBook(state) || state.isFull())
+			return new Coached(cachedAdvice(state), null);
+		DraftSession session = new DraftSession(state);
+		if (from != null)
+			return new Coached(advice(session, suggestions(session, from.tree, 1)), from.tree);
+		long version = stamp();
+		Map<String, Integer> map = results.get(state, version);
+		if (map != null)
+			return new Coached(map, null); // (what comes after it searches afresh)
+		TreeNode tree = plant(state);
+		map = advice(session, suggestions(session, tree, 0));
+		results.put(state, version, map);
+		return new Coached(map, tree);
+	}
+	
+	/**
+	 * @return the advice from the {@link #getResultCache() result cache}, computing it if need be; not to be changed
+	 */
+	private Map<String, Integer> cachedAdvice(DraftState state) {
+		long version = stamp();
+		Map<String, Integer> map = results.get(state, version);
+		if (map == null) {
+			DraftSession session = new DraftSession(state);
+			map = advice(session, session.isFull() ? null : suggestions(session));
+			results.put(state, version, map);
+		}
+		return map;
+	}
+	
+	/**
+	* stateless; answers within the given time by {@link #deepen(DraftSession, Budget) iterative deepening}
+	* <p>
+	* The result also holds the "depth" the search reached.
+	*/
+	public Map<String, Integer> coachMeSenpai (String draftFormat, final List<String> selected, long budgetMillis) {
+		DraftSession session = session(draftFormat, selected);
+		if (session.isFull())
+			return advice(session, null);
+		SearchResult result = deepen(session, Budget.millis(budgetMillis));
+		Map<String, Integer> map = advice(session, result.getPicks());
+		map.put("depth", result.getDepth());
+		return map;
+	}
+	
+	/**
+	* stateful, for servers: the draft so far is kept under the session id, so each call only searches 
+	* what is new since the previous one (see {@link EngineSession}). 
+	* A draft that does not continue the one kept under the id replaces it.
+	*/
+	public Map<String, Integer> coachMeSenpai (String sessionId, String draftFormat, final List<String> selected) {
+		Format format = Format.valueOf(draftFormat);
+		List<Hero> heroes = new ArrayList<>(selected.size());
+		for (String hero : selected)
+			heroes.add(Hero.fromName(hero));
+		
+		EngineSession session;
+		synchronized (sessions) {
+			session = sessions.get(sessionId);
+		}
+		Map<String, Integer> map = session == null ? null : session.coachMeSenpai(format, heroes);
+		if (map == null) {
+			session = new EngineSession(this, sessionId, format);
+			synchronized (sessions) {
+				sessions.put(sessionId, session);
+			}
+			map = session.coachMeSenpai(format, heroes);
+		}
+		return map;
+	}
+	
+	/**
+	 * @return a new session, kept for {@link #getSession(String)} until closed 
+	 * 		(or until it is the least recently used of too many)
+	 */
+	public EngineSession openSession(Format format) {
+		EngineSession session = new EngineSession(this, format);
+		synchronized (sessions) {
+			sessions.put(session.getId(), session);
+		}
+		return session;
+	}
+	
+	/**
+	 * @return the open session, or {@code null} if there is none by that id (any more)
+	 */
+	public EngineSession getSession(String id) {
+		synchronized (sessions) {
+			return sessions.get(id);
+		}
+	}
+	
+	public void closeSession(String id) {
+		synchronized (sessions) {
+			sessions.remove(id);
+		}
+	}
+	
+	DraftSession session(String draftFormat, List<String> selected) {
 		Format format = Format.valueOf(draftFormat);
 		DraftSession session = new DraftSession(format);
 		for (String hero : selected) {
 			session.pickOrBan(Hero.fromName(hero));
 		}
+		return session;
+	}
+	
+	/**
+	 * @param suggestions for the session, or {@code null} if it is full
+	 */
+	Map<String, Integer> advice(DraftSession session, List<Pick> suggestions) {
 		Map<String, Integer> map = new HashMap<>();
 		double currentOdds;
-		if (!session.isFull()) {
-			List<Pick> suggestions = suggestions(session);
-
+		if (suggestions != null) {
 			// new "percent from worst to best" rank (1-10)
 			Double max = suggestions.get(0).getScore();
 			Double min = suggestions.get(suggestions.size()-1).getScore();
@@ -67,9 +439,171 @@ public class Engine {
 	* @return all possible picks, with resulting odds that blue wins
 	*/
 	public List<Pick> suggestions(DraftSession session) {
-		return pruningAlgorithm(session);
-//		return greedyAlgorithm(session);
-		//return priorityAlgorithm(session);
+		return suggestions(session, algorithm);
+	}
+	
+	/**
+	* @return all possible picks, with resulting odds that blue wins
+	*/
+	public List<Pick> suggestions(DraftSession session, Algorithm algorithm) {
+		return suggestions(session, algorithm, budget);
+	}
+	
+	/**
+	* @param budget limits anytime algorithms; others run to completion regardless
+	* @return all possible picks, with resulting odds that blue wins; 
+	* 		straight from the {@link #getOpeningBook() opening book} if it covers the position for this algorithm
+	*/
+	public List<Pick> suggestions(DraftSession session, Algorithm algorithm, Budget budget) {
+		return search(session, algorithm, budget).getPicks();
+	}
+	
+	/**
+	 * {@link #suggestions(DraftSession)}, along with how far the search got and what it took
+	 */
+	public SearchResult search(DraftSession session) {
+		return search(session, algorithm, budget);
+	}
+	
+	/**
+	 * {@link #suggestions(DraftSession, Algorithm, Budget)}, along with how far the search got 
+	 * and {@link SearchResult#getStats() what it took}
+	 */
+	public SearchResult search(DraftSession session, Algorithm algorithm, Budget budget) {
+		DraftState state = session.getState();
+		return measured(state, algorithm, () -> {
+			List<Pick> known = fromBook(state, algorithm);
+			if (known != null) {
+				SearchStats.current().answeredFromBook();
+				return new SearchResult(known, 0, false);
+			}
+			switch (algorithm) {
+				default:
+				case PRUNING:
+					return result(state, pruningAlgorithm(session), false);
+				case GREEDY:
+					return result(state, greedyAlgorithm(session), true);
+				case PRIORITY:
+					return result(state, priorityAlgorithm(session), false);
+				case ALPHA_BETA:
+					return result(state, alphaBetaAlgorithm(session), true);
+				case ITERATIVE_DEEPENING:
+					return iterativeDeepening(session, budget);
+				case MONTE_CARLO:
+					return result(state, new MonteCarloSearch(this, exploration).search(state, budget), false);
+				case BRANCH_AND_BOUND:
+					return result(state, branchAndBoundAlgorithm(session), true);
+			}
+		});
+	}
+	
+	/**
+	 * Runs the search with its own {@link SearchStats} for the calling thread (and the tasks it forks), 
+	 * then adds them to the {@link #getMetrics() metrics}
+	 */
+	private SearchResult measured(DraftState state, Algorithm algorithm, Supplier<SearchResult> search) {
+		SearchStats stats = new SearchStats(state, algorithm);
+		SearchStats outer = SearchStats.install(stats); // (a task stolen while joining runs its own search)
+		try {
+			return search.get().measured(stats);
+		} finally {
+			SearchStats.install(outer);
+			stats.finish();
+			metrics.record(stats);
+		}
+	}
+	
+	/**
+	 * @param exhaustive whether the algorithm weighs every option up to the depth it reached, 
+	 * 		so that reaching the end of the draft makes it exact
+	 */
+	private static SearchResult result(DraftState state, List<Pick> picks, boolean exhaustive) {
+		int depth = SearchStats.current().getDepth();
+		return new SearchResult(picks, depth, exhaustive && depth >= state.remainingPhases());
+	}
+	
+	/**
+	 * Notes for the running search, if measured, that it looked so many phases past the state exactly
+	 */
+	private static void reached(DraftState state, int depth) {
+		SearchStats stats = SearchStats.current();
+		if (stats != null)
+			stats.reached(state.currentPhaseNo() + depth);
+	}
+	
+	/**
+	 * {@link #suggestions(DraftSession)} for an {@link EngineSession}: the pruning search grows its tree, 
+	 * rooted at the session's position, instead of a new one
+	 * 
+	 * @param depth of the root in the search that built the tree, to continue that search rather than repeat it
+	 */
+	List<Pick> suggestions(DraftSession session, TreeNode tree, int depth) {
+		if (algorithm != Algorithm.PRUNING || fromBook(session.getState(), algorithm) != null)
+			return suggestions(session);
+		DraftState state = session.getState();
+		return measured(state, algorithm, () -> result(state, pruningAlgorithm(tree, depth), false)).getPicks();
+	}
+	
+	/**
+	 * @return whether the {@link #getOpeningBook() opening book} answers {@link #suggestions(DraftSession)} for the position
+	 */
+	boolean inBook(DraftState state) {
+		return fromBook(state, algorithm) != null;
+	}
+	
+	/**
+	 * @return whether {@link #coachMeSenpai(String, List)} would answer for the position without searching
+	 */
+	boolean hasAdvice(DraftState state) {
+		return inBook(state) || results.contains(state, stamp());
+	}
+	
+	/**
+	 * @return the {@link #getOpeningBook() opening book} entry, or {@code null} if it does not cover the position 
+	 * 		for this algorithm and the current settings
+	 */
+	private List<Pick> fromBook(DraftState state, Algorithm algorithm) {
+		return book != null && book.getAlgorithm() == algorithm && book.isSearchedLike(this) ? book.get(state) : null;
+	}
+	
+	/**
+	 * @return the root of a new search tree for {@link EngineSession}
+	 */
+	TreeNode plant(DraftState state) {
+		return new TreeNode(null, state);
+	}
+	
+	/**
+	 * @return the root's subtree for the next position, cut loose from the rest; or {@code null} if the tree has none
+	 */
+	TreeNode reroot(TreeNode root, DraftState next) {
+		TreeNode child = child(root, next);
+		if (child != null)
+			child.parent = null;
+		return child;
+	}
+	
+	/**
+	 * @return the root's child for the next position, or {@code null} if it has none
+	 */
+	TreeNode child(TreeNode root, DraftState next) {
+		for (TreeNode child : root.children)
+			if (child.getState().equals(next))
+				return child;
+		return null;
+	}
+	
+	/**
+	 * Runs ahead the search {@link EngineSession} will make once the tree is re-rooted at this node, 
+	 * until done or cancelled. Whatever it expands stays in the tree.
+	 * 
+	 * @return that search's suggestions, or {@code null} if cancelled first or it would not search the tree
+	 */
+	List<Pick> ponder(TreeNode node, BooleanSupplier cancelled) {
+		if (algorithm != Algorithm.PRUNING || fromBook(node.getState(), algorithm) != null || node.isFull())
+			return null;
+		grow(node, 1, cancelled);
+		return cancelled.getAsBoolean() ? null : picks(node);
 	}
 	
 	/**
@@ -86,71 +620,467 @@ public class Engine {
 	/**
 	 * A tree-search algorithm. Attempts to coarsely evaluate all options 
 	 * and then dive deeply into promising ones.
+	 * <p>
+	 * Sibling subtrees are expanded in parallel on the {@link #pool}, if any. 
+	 * Node values don't depend on the order of expansion, so the result matches a sequential search.
 	 */
 	private List<Pick> pruningAlgorithm(DraftSession session) {
-		TreeNode current = new TreeNode(null, session);
-		
-		// fill out tree:
-		iterate(current, 0);
-		
+		return pruningAlgorithm(new TreeNode(null, session.getState()), 0);
+	}
+	
+	/**
+	 * Expands the tree from the given root, reusing whatever is already there
+	 * 
+	 * @param iterations to count the root as, for how widely it is explored
+	 * @throws CancellationException if the searching thread is interrupted first; what was grown stays in the tree
+	 */
+	private List<Pick> pruningAlgorithm(TreeNode current, int iterations) {
+		Thread searcher = Thread.currentThread(); // (polled from the pool's threads too)
+		grow(current, iterations, searcher::isInterrupted);
+		if (searcher.isInterrupted())
+			throw new CancellationException("Search interrupted");
+		return picks(current);
+	}
+	
+	/**
+	 * @return the root's children as suggestions, best for the picking team first
+	 */
+	private List<Pick> picks(TreeNode current) {
 		List<Pick> picks = current.bestPicks().stream()
 				.map(node -> new Pick(node.getLastPick(), node.odds()))
 				.sorted()
 				.collect(Collectors.toList());
-		if (!session.currentPhase().isBlue())
+		if (!current.getState().currentPhase().isBlue())
 			Collections.reverse(picks);
 		return picks;
 	}
+	
+	/**
+	 * Fills out the tree below the root
+	 * 
+	 * @param cancelled polled before each node; once true, the search returns early
+	 */
+	private void grow(TreeNode root, int iterations, BooleanSupplier cancelled) {
+		if (root.getState().remainingPhases() <= endgameThreshold)
+			iterations = 0; // would be solved rather than expanded, but the root's children are the answer
+		if (pool == null)
+			iterate(root, iterations, cancelled);
+		else
+			pool.invoke(new Iteration(root, iterations, cancelled));
+	}
 
-	private void iterate(TreeNode current, int iterations) {
-		if (current.isFull())
-			return; // all done!
+	private void iterate(TreeNode current, int iterations, BooleanSupplier cancelled) {
+		if (cancelled.getAsBoolean())
+			return; // (nodes are expanded whole, so the search can resume here)
+		if (current.isFull() || (iterations > 0 && current.isSolved()))
+			return; // all done! (a solved root, re-rooted from a deeper search, still needs its children)
+		if (iterations > 0 && current.getState().remainingPhases() <= endgameThreshold) {
+			current.solve(); // rather than expanding; the root is always expanded, since its children are the answer
+			return;
+		}
 		
 		
-		DraftSession state = current.getState();
-		for (Hero hero : state.currentPool()) {
-			TreeNode node = new TreeNode(hero, state.whatIf(hero));
-			current.addChild(node);
+		DraftState state = current.getState();
+		boolean parallel = inParallel(state);
+		if (current.isExpanded()) {
+			// kept from an earlier search: only dive deeper
+		} else {
+			if (parallel) {
+				List<Expansion> expansions = new ArrayList<>();
+				for (long pool = state.poolMask(); pool != 0; pool &= pool - 1)
+					expansions.add(new Expansion(HeroMask.first(pool), state));
+				ForkJoinTask.invokeAll(expansions);
+				for (Expansion expansion : expansions)
+					current.addChild(expansion.join());
+			} else {
+				for (long pool = state.poolMask(); pool != 0; pool &= pool - 1) {
+					Hero hero = HeroMask.first(pool);
+					TreeNode node = new TreeNode(hero, state.whatIf(hero));
+					current.addChild(node);
+				}
+			}
+			SearchStats stats = SearchStats.current();
+			if (stats != null) {
+				stats.expanded(current.children.size());
+				stats.reached(state.currentPhaseNo() + 1);
+			}
 		}
 		
-		List<TreeNode> optimalAvenues = current.bestPicks();
-		if (!state.currentPhase().isBlue())
-			Collections.reverse(optimalAvenues);
+		List<TreeNode> optimalAvenues = state.currentPhase().isBlue() ? current.bestPicks() : current.worstPicks();
 		
 		// some magic to approximate a feasible runtime
+		// (bounds can't stand in for it: solving a child can lower the odds of a node, so the one safe cut is against
+		// the node's own greedy estimate, and no bound gets under that but at the very end; see BRANCH_AND_BOUND)
 		int heroes = Hero.values().length;
 		int phases = state.getFormat().size();
 		int phase = state.currentPhaseNo();
 //		int remaining = phases - phase - 1;
 		int avenuesToExplore = (heroes*1/2 - phases*1 + phase*3) / (1 + iterations*iterations*3/2);
+		if (state.remainingPhases() <= endgameThreshold)
+			avenuesToExplore = optimalAvenues.size(); // a root in the endgame: solve every option, not just the likeliest
 		
+		List<Iteration> subtrees = new ArrayList<>();
 		for (int i = 0; i < optimalAvenues.size(); i++) {
 			TreeNode avenue = optimalAvenues.get(i);
-			if (i < avenuesToExplore)
-				iterate(avenue, iterations+1);
+			if (i < avenuesToExplore) {
+				if (parallel)
+					subtrees.add(new Iteration(avenue, iterations+1, cancelled));
+				else
+					iterate(avenue, iterations+1, cancelled);
+			}
 //			else // greedy fill
 //				avenue = new TreeNode(avenue.getLastPick(), greedyFill(avenue.getState()));
 		}
+		ForkJoinTask.invokeAll(subtrees);
+	}
+	
+	/**
+	 * granularity control: only fork where the subtree below is deep enough to be worth a task
+	 */
+	private boolean inParallel(DraftState state) {
+		return pool != null && ForkJoinTask.inForkJoinPool() && state.remainingPhases() > parallelThreshold;
+	}
+	
+	/**
+	 * {@link #iterate(TreeNode, int, BooleanSupplier)} as a fork-join task, counted towards the search that forked it
+	 */
+	private class Iteration extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final TreeNode node;
+		private final int iterations;
+		private final BooleanSupplier cancelled;
+		private final SearchStats stats = SearchStats.current();
+		
+		Iteration(TreeNode node, int iterations, BooleanSupplier cancelled) {
+			this.node = node;
+			this.iterations = iterations;
+			this.cancelled = cancelled;
+		}
+		
+		@Override
+		protected void compute() {
+			SearchStats outer = SearchStats.install(stats);
+			try {
+				iterate(node, iterations, cancelled);
+			} finally {
+				SearchStats.install(outer);
+			}
+		}
+	}
+	
+	/**
+	 * Creates (and so scores) one child of a node as a fork-join task, counted towards the search that forked it
+	 */
+	private class Expansion extends RecursiveTask<TreeNode> {
+		private static final long serialVersionUID = 1L;
+		private final Hero hero;
+		private final DraftState parent;
+		private final SearchStats stats = SearchStats.current();
+		
+		Expansion(Hero hero, DraftState parent) {
+			this.hero = hero;
+			this.parent = parent;
+		}
+		
+		@Override
+		protected TreeNode compute() {
+			SearchStats outer = SearchStats.install(stats);
+			try {
+				return new TreeNode(hero, parent.whatIf(hero));
+			} finally {
+				SearchStats.install(outer);
+			}
+		}
+	}
+	
+	/**
+	 * Minimax search with alpha-beta cutoffs: blue maximizes and red minimizes the odds that blue wins, 
+	 * according to {@link draft.Phase#isBlue()}. Moves are tried in {@link #optimalNextSelections(DraftState)} 
+	 * order (i.e. by {@link Calculator#marginalScore}) so that cutoffs come early. 
+	 * Positions {@link #searchDepth} phases ahead are scored with {@link #fillAndScore(DraftState)}.
+	 * <p>
+	 * Every root option is searched with a full window, so each gets an exact minimax value to rank by.
+	 */
+	private List<Pick> alphaBetaAlgorithm(DraftSession session) {
+		return alphaBetaPicks(session.getState(), searchDepth, null, 0L);
+	}
+	
+	/**
+	 * @param budget checked throughout the search, or {@code null} for none
+	 * @throws SearchTimeout if the budget runs out first
+	 */
+	private List<Pick> alphaBetaPicks(DraftState state, int depth, Budget budget, long start) {
+		List<Pick> picks = new ArrayList<>();
+		for (Pick move : optimalNextSelections(state)) {
+			Hero hero = move.getCandidate();
+			double odds = alphaBeta(state.whatIf(hero), depth - 1, 
+					Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, budget, start);
+			picks.add(new Pick(hero, odds));
+		}
+		reached(state, depth);
+		Collections.sort(picks);
+		if (!state.currentPhase().isBlue())
+			Collections.reverse(picks);
+		return picks;
+	}
+	
+	/**
+	 * @return minimax odds for blue, exact within the window (alpha, beta)
+	 */
+	private double alphaBeta(DraftState state, int depth, double alpha, double beta, Budget budget, long start) {
+		if (budget != null && budget.isSpent(start, 0))
+			throw SearchTimeout.INSTANCE;
+		if (state.isFull())
+			return scorer.scorePlusSynergy(state);
+		if (depth <= 0)
+			return fillAndScore(state);
+		
+		boolean maximizing = state.currentPhase().isBlue();
+		double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (Pick move : optimalNextSelections(state)) {
+			double odds = alphaBeta(state.whatIf(move.getCandidate()), depth - 1, alpha, beta, budget, start);
+			if (maximizing) {
+				best = Math.max(best, odds);
+				alpha = Math.max(alpha, best);
+			} else {
+				best = Math.min(best, odds);
+				beta = Math.min(beta, best);
+			}
+			if (alpha >= beta)
+				break; // the other side will never allow this position
+		}
+		return best;
+	}
+	
+	/**
+	 * Anytime iterative deepening: {@link #alphaBetaPicks alpha-beta} at depth 1, 2, 3... 
+	 * keeping the deepest complete ordering when the budget's time runs out. 
+	 * Depth 1 is the plain greedy-fill ordering and always completes, so there is always an answer.
+	 * 
+	 * @param budget the time allowed, and optionally a maximum depth (as its iteration count)
+	 */
+	public SearchResult deepen(DraftSession session, Budget budget) {
+		return measured(session.getState(), Algorithm.ITERATIVE_DEEPENING, () -> iterativeDeepening(session, budget));
+	}
+	
+	private SearchResult iterativeDeepening(DraftSession session, Budget budget) {
+		long start = System.nanoTime();
+		DraftState state = session.getState();
+		int remaining = state.remainingPhases();
+		
+		List<Pick> best = alphaBetaPicks(state, 1, null, start);
+		int depth = 1;
+		while (depth < remaining && !budget.isSpent(start, depth)) {
+			try {
+				best = alphaBetaPicks(state, depth + 1, budget, start);
+				depth++;
+			} catch (SearchTimeout e) {
+				break; // keep the last complete ordering
+			}
+		}
+		return new SearchResult(best, depth, depth >= remaining);
+	}
+	
+	/**
+	 * Minimax like {@link #alphaBetaAlgorithm(DraftSession)}, over the same {@link #searchDepth} and move order, 
+	 * but an option is skipped outright when its {@link Calculator#upperBound bound} for the team choosing 
+	 * cannot beat the best option found, here or above. 
+	 * Where the search would reach the end of the draft anyway, it {@link #solveEndgame solves} it instead.
+	 * <p>
+	 * Unlike {@link #pruningAlgorithm(DraftSession)}, how much is explored follows from the data, not a fixed cap.
+	 */
+	private List<Pick> branchAndBoundAlgorithm(DraftSession session) {
+		DraftState state = session.getState();
+		List<Pick> picks = new ArrayList<>();
+		for (Pick move : optimalNextSelections(state)) {
+			Hero hero = move.getCandidate();
+			double odds = branchAndBound(state.whatIf(hero), searchDepth - 1, 
+					Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+			picks.add(new Pick(hero, odds));
+		}
+		reached(state, searchDepth);
+		Collections.sort(picks);
+		if (!state.currentPhase().isBlue())
+			Collections.reverse(picks);
+		return picks;
+	}
+	
+	/**
+	 * @return minimax odds for blue, exact within the window (alpha, beta)
+	 */
+	private double branchAndBound(DraftState state, int depth, double alpha, double beta) {
+		if (state.isFull())
+			return scorer.scorePlusSynergy(state);
+		if (state.remainingPhases() <= Math.min(depth, endgameThreshold))
+			return solveEndgame(state); // the search would reach the end anyway; the solver gets there faster
+		if (depth <= 0)
+			return fillAndScore(state);
+		
+		boolean maximizing = state.currentPhase().isBlue();
+		double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (Pick move : optimalNextSelections(state)) {
+			DraftState next = state.whatIf(move.getCandidate());
+			// the most the chooser could hope for from this option; skip it if that can't beat what's found
+			if (next.remainingPhases() <= BOUND_HORIZON 
+					&& (maximizing ? alpha > Double.NEGATIVE_INFINITY : beta < Double.POSITIVE_INFINITY)) {
+				double bound = maximizing ? scorer.upperBound(next) : scorer.lowerBound(next);
+				if (maximizing ? bound <= alpha : bound >= beta) {
+					best = maximizing ? Math.max(best, bound) : Math.min(best, bound);
+					continue;
+				}
+			}
+			double odds = branchAndBound(next, depth - 1, alpha, beta);
+			if (maximizing) {
+				best = Math.max(best, odds);
+				alpha = Math.max(alpha, best);
+			} else {
+				best = Math.min(best, odds);
+				beta = Math.min(beta, best);
+			}
+			if (alpha >= beta)
+				break;
+		}
+		return best;
+	}
+	
+	/**
+	 * Unwinds a search whose budget ran out. Preallocated and stackless, since it's control flow.
+	 */
+	private static class SearchTimeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private static final SearchTimeout INSTANCE = new SearchTimeout();
+		
+		private SearchTimeout() {
+			super("Search budget spent", null, false, false);
+		}
+	}
+	
+	/**
+	 * Exact minimax odds for blue, assuming both teams play perfectly from here on: 
+	 * blue maximizes and red minimizes the final {@link Calculator#scorePlusSynergy(DraftState)}, bans included. 
+	 * Alpha-beta over bitmask states, memoized in {@link #getEndgameTable()}.
+	 * <p>
+	 * Exponential in the remaining phases, so only meant for the last few; see {@link #getEndgameThreshold()}.
+	 */
+	public double solveEndgame(DraftState state) {
+		SearchStats stats = SearchStats.current();
+		if (stats != null) {
+			stats.endgameSolved();
+			stats.reached(state.getFormat().size());
+		}
+		// one tally per level, each branching from the one above
+		DraftTally[] levels = new DraftTally[Math.max(1, state.remainingPhases())];
+		levels[0] = scorer.tally().reset(state);
+		return solve(levels, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * @return minimax odds, exact if strictly inside (alpha, beta); otherwise only a bound on that side
+	 */
+	private double solve(DraftTally[] levels, int level, double alpha, double beta) {
+		DraftTally tally = levels[level];
+		DraftState state = tally.getState();
+		if (state.isFull())
+			return scorer.scorePlusSynergy(tally);
+		if (state.remainingPhases() == 1)
+			return solveLastPhase(tally, alpha, beta);
+		// two phases out, positions are too many and cut too often for a memo to pay (except as a root)
+		boolean memo = level == 0 || state.remainingPhases() > 2;
+		Double known = memo ? endgameTable.get(state) : null;
+		if (known != null)
+			return known;
+		
+		if (levels[level + 1] == null)
+			levels[level + 1] = scorer.tally();
+		DraftTally next = levels[level + 1];
+		double alphaIn = alpha;
+		double betaIn = beta;
+		boolean maximizing = state.currentPhase().isBlue();
+		double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (Hero hero : endgameMoves(tally)) {
+			next.copyFrom(tally).pickOrBan(hero);
+			double odds = solve(levels, level + 1, alpha, beta);
+			if (maximizing) {
+				best = Math.max(best, odds);
+				alpha = Math.max(alpha, best);
+			} else {
+				best = Math.min(best, odds);
+				beta = Math.min(beta, best);
+			}
+			if (alpha >= beta)
+				break;
+		}
+		// only exact values are worth keeping: a cutoff, or a value outside the window, is just a bound
+		if (memo && alphaIn < best && best < betaIn)
+			endgameTable.put(state, best);
+		return best;
+	}
+	
+	/**
+	 * The leaves of {@link #solve}: one scan of the pool in log space, 
+	 * each candidate scored from the tally in O(roster) and cheaper than a memo lookup
+	 */
+	private double solveLastPhase(DraftTally tally, double alpha, double beta) {
+		DraftState state = tally.getState();
+		if (!state.currentPhase().isPick())
+			return scorer.scorePlusSynergy(tally); // a ban changes nothing now
+		
+		boolean maximizing = state.currentPhase().isBlue();
+		double cutoff = maximizing ? Math.log(beta) : (alpha > 0 ? Math.log(alpha) : Double.NEGATIVE_INFINITY);
+		double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (long m = state.poolMask(); m != 0; m &= m - 1) {
+			double odds = scorer.logScorePlusSynergy(tally, HeroMask.first(m), maximizing);
+			if (maximizing ? odds > best : odds < best)
+				best = odds;
+			if (maximizing ? best >= cutoff : best <= cutoff)
+				break;
+		}
+		return Math.exp(best);
+	}
+	
+	/**
+	 * @return the pool, most promising first so that cutoffs come early: 
+	 * 		picks by their marginal value to the picking team, bans by their value to the other
+	 */
+	private Hero[] endgameMoves(DraftTally tally) {
+		DraftState state = tally.getState();
+		boolean forBlue = state.currentPhase().isBlue() == state.currentPhase().isPick();
+		long pool = state.poolMask();
+		Hero[] moves = new Hero[HeroMask.size(pool)];
+		double[] scores = new double[moves.length];
+		int n = 0;
+		for (long m = pool; m != 0; m &= m - 1, n++) {
+			Hero hero = HeroMask.first(m);
+			double score = scorer.logMarginalScore(hero, tally, forBlue);
+			int at = n;
+			for (; at > 0 && Double.compare(score, scores[at-1]) > 0; at--) {
+				moves[at] = moves[at-1];
+				scores[at] = scores[at-1];
+			}
+			moves[at] = hero;
+			scores[at] = score;
+		}
+		return moves;
 	}
 	
 	/**
 	 * Greedy algorithm. Assuming each possible pick, fill out the rest of the draft 
 	 * with the greediest picks ({@link #greedyPick(us, them, pool)}) and score the result. 
 	 */
-	@SuppressWarnings("unused")
 	private List<Pick> greedyAlgorithm(DraftSession session) {
+		DraftState state = session.getState();
 		Set<Hero> pool = session.currentPool();
 		List<Pick> picks = pool.stream().map(hero -> {
-					return new Pick(hero, fillAndScore(session.whatIf(hero)));
+					return new Pick(hero, fillAndScore(state.whatIf(hero)));
 				})
 				.sorted()
 				.collect(Collectors.toList());
+		reached(state, 1);
 		if (!session.currentPhase().isBlue())
 			Collections.reverse(picks);
 		return picks;
 	}
 
-	@SuppressWarnings("unused")
 	private List<Pick> priorityAlgorithm(DraftSession sesh) {
 		// picks or defensive bans:
 		Roster teamWithNextPickPhase = sesh.getStrategy() == PICK ? sesh.pickingTeam() : sesh.enemyTeam();
@@ -240,32 +1170,35 @@ public class Engine {
 	//   Picking Algorithms   //
 	////////////////////////////
 	
-	private List<Pick> optimalNextSelections(DraftSession session) {
-		Strategy strategy = session.getStrategy();
+	private List<Pick> optimalNextSelections(DraftState state) {
+		Strategy strategy = state.getStrategy();
 		switch (strategy) {
 			default:
 			case PICK:
-				return optimalNextPicks(session.pickingTeam(), session.enemyTeam(), session.currentPool());
+				return optimalNextPicks(state.pickingTeam(), state.enemyTeam(), state.poolMask());
 			case DEFENSIVE_BAN:
-				return optimalNextPicks(session.enemyTeam(), session.pickingTeam(), session.currentPool());
+				return optimalNextPicks(state.enemyTeam(), state.pickingTeam(), state.poolMask());
 			case OFFENSIVE_BAN:
-				return optimalOffensiveBan(session.pickingTeam(), session.enemyTeam(), session.currentPool());
+				return optimalOffensiveBan(state.pickingTeam(), state.enemyTeam(), state.poolMask());
 		}
 	}
 	
 	/**
 	 * Currently uses a greedy algorithm to determine optimal next picks
 	 * 
-	 * @return list of all possible hero picks, decreasing in strength
+	 * @return list of all possible hero picks, decreasing in strength (scored in log space: only the order is meaningful)
 	 */
-	private List<Pick> optimalNextPicks(Roster pickingTeam, Roster enemyTeam, Set<Hero> pool) {
+	private List<Pick> optimalNextPicks(long pickingTeam, long enemyTeam, long pool) {
 //		return greedyPick(pickingTeam, enemyTeam, pool);
 		
 		// for each possibility, evaluate the marginal value added to our team
-		return pool.stream()
-				.map(hero -> new Pick(hero, scorer.marginalScore(hero, pickingTeam, enemyTeam, pool)))
-				.sorted()
-				.collect(Collectors.toList());
+		List<Pick> picks = new ArrayList<>(HeroMask.size(pool));
+		for (long m = pool; m != 0; m &= m - 1) {
+			Hero hero = HeroMask.first(m);
+			picks.add(new Pick(hero, scorer.logMarginalScore(hero, pickingTeam, enemyTeam)));
+		}
+		Collections.sort(picks);
+		return picks;
 		
 		// the previously less efficient way of evaluating the next state in full (rather than marginally)
 //				.map(hero -> new Pick(hero, scoreAndFill(pickingTeam.whatIf(hero), enemyRoster, subPool(pool, hero))))
@@ -279,13 +1212,14 @@ public class Engine {
 //				.collect(Collectors.toList());
 //	}
 	
-	private List<Pick> optimalOffensiveBan(Roster banningTeam, Roster enemyTeam, Set<Hero> pool) {
+	private List<Pick> optimalOffensiveBan(long banningTeam, long enemyTeam, long pool) {
 		List<Pick> bestBans = new ArrayList<>();
 		
-		for (Hero ban : pool) {
+		for (long m = pool; m != 0; m &= m - 1) {
+			Hero ban = HeroMask.first(m);
 			// "if we ban this..."
-			List<Pick> picks = optimalNextPicks(banningTeam, enemyTeam, Calculator.subPool(pool, ban));
-			Double futureHeroScore = picks.get(1).getScore(); // "...then our next hero is the second best remaining hero"
+			List<Pick> picks = optimalNextPicks(banningTeam, enemyTeam, pool & ~ban.mask());
+			double futureHeroScore = picks.get(1).getScore(); // "...then our next hero is the second best remaining hero"
 			bestBans.add(new Pick(ban, futureHeroScore));
 		}
 		Collections.sort(bestBans);
@@ -302,60 +1236,221 @@ public class Engine {
 	 * does not modify given object instances
 	 */
 	public Double fillAndScore(DraftSession session) {
-		DraftSession newSession = session.clone();
-		newSession = greedyFill(newSession);
-		return scorer.scorePlusSynergy(newSession);
+		return fillAndScore(session.getState());
+	}
+	
+	/**
+	 * uses greedy fill, consulting the {@link TranspositionTable} first
+	 * <p>
+	 * Greedy fill is deterministic, so every state along one fill ends in the same draft;
+	 * all of them are recorded with the final odds.
+	 */
+	public Double fillAndScore(DraftState state) {
+		DraftState[] path = new DraftState[state.remainingPhases()];
+		int steps = 0;
+		Double odds = null;
+		DraftTally tally = null;
+		while (!state.isFull()) {
+			odds = table.get(state);
+			if (odds != null)
+				break;
+			path[steps++] = state;
+			if (tally == null)
+				tally = tallies.get().reset(state);
+			tally.pickOrBan(greedySelection(tally));
+			state = tally.getState();
+		}
+		if (odds == null)
+			odds = tally == null ? scorer.scorePlusSynergy(state) : scorer.scorePlusSynergy(tally);
+		for (int i = 0; i < steps; i++)
+			table.put(path[i], odds);
+		SearchStats stats = SearchStats.current();
+		if (stats != null)
+			stats.filled(steps);
+		return odds;
+	}
+	
+	/**
+	 * @return the head of {@link #optimalNextSelections(DraftState)}, ties included, 
+	 * 		without building or sorting the list: one marginal lookup per hero in the pool
+	 */
+	private Hero greedySelection(DraftTally tally) {
+		DraftState state = tally.getState();
+		long pool = state.poolMask();
+		boolean blue = state.currentPhase().isBlue();
+		switch (state.getStrategy()) {
+			default:
+			case PICK:
+				return bestMarginal(tally, blue, pool);
+			case DEFENSIVE_BAN:
+				return bestMarginal(tally, !blue, pool);
+			case OFFENSIVE_BAN:
+				if (HeroMask.size(pool) < 3)
+					return optimalNextSelections(state).get(0).getCandidate();
+				// banning one of our top two leaves us the third best; banning anyone else leaves the second
+				Hero[] top = new Hero[3];
+				double[] scores = new double[3];
+				int found = 0;
+				for (long m = pool; m != 0; m &= m - 1) {
+					Hero hero = HeroMask.first(m);
+					double score = scorer.logMarginalScore(hero, tally, blue);
+					int at = found;
+					while (at > 0 && Double.compare(score, scores[at-1]) > 0)
+						at--;
+					if (at == 3)
+						continue;
+					for (int i = Math.min(found, 2); i > at; i--) {
+						top[i] = top[i-1];
+						scores[i] = scores[i-1];
+					}
+					top[at] = hero;
+					scores[at] = score;
+					found = Math.min(found + 1, 3);
+				}
+				Hero best = null;
+				double bestScore = 0;
+				for (long m = pool; m != 0; m &= m - 1) {
+					Hero ban = HeroMask.first(m);
+					double score = ban == top[0] || ban == top[1] ? scores[2] : scores[1];
+					if (best == null || Double.compare(score, bestScore) > 0) {
+						best = ban;
+						bestScore = score;
+					}
+				}
+				return best;
+		}
 	}
 	
-	private DraftSession greedyFill(DraftSession sesh) {
-		while (!sesh.isFull()) {
-			sesh.pickOrBan(optimalNextSelections(sesh).get(0).getCandidate());
+	private Hero bestMarginal(DraftTally tally, boolean forBlue, long pool) {
+		Hero best = null;
+		double bestScore = 0;
+		for (long m = pool; m != 0; m &= m - 1) {
+			Hero hero = HeroMask.first(m);
+			double score = scorer.logMarginalScore(hero, tally, forBlue);
+			if (best == null || Double.compare(score, bestScore) > 0) {
+				best = hero;
+				bestScore = score;
+			}
 		}
-		return sesh;
+		return best;
 	}
 	
 	/**
 	 * Essentially a container for a particular {@link DraftSession} state. 
 	 * Used to build a tree for the pruning algorithm: {@link Calculator#pruningAlgorithm(DraftSession)}.
 	 */
-	private class TreeNode implements Comparable<TreeNode> {
+	class TreeNode implements Comparable<TreeNode> {
+			private TreeNode parent;
 			private Hero lastPick;
-			private DraftSession state;
-			private Double currentOdds;
+			private DraftState state;
+			private double currentOdds;
+			private boolean solved;
 			private ArrayList<TreeNode> children;
+			// backed-up odds and children order, kept until something below changes (see #invalidate)
+			private double odds;
+			private volatile boolean stale;
 			
-			public TreeNode(Hero lastPick, DraftSession state) {
+			public TreeNode(Hero lastPick, DraftState state) {
 				this.lastPick = lastPick;
 				this.state = state;
 //				this.currentOdds = scoreAndFill(state.getBlue(), state.getRed(), state.currentPool());
 				this.currentOdds = fillAndScore(state);
+				this.odds = currentOdds;
 				this.children = new ArrayList<>();
 			}
 			
-			public Double odds() {
-				return children.isEmpty() ? currentOdds 
-						: Math.max(currentOdds, bestPicks().get(0).odds());
+			public double odds() {
+				if (stale)
+					refresh();
+				return odds;
 			}
 			
 			public Hero getLastPick() { return lastPick; }
-			public DraftSession getState() { return state; }
+			public DraftState getState() { return state; }
 			public ArrayList<TreeNode> bestPicks() {
-				Collections.sort(children);
+				if (stale)
+					refresh();
 				return children;
 			}
 			
+			/**
+			 * @return {@link #bestPicks()} reversed in place; re-sorted on next access, leaving ties reversed
+			 */
+			public ArrayList<TreeNode> worstPicks() {
+				ArrayList<TreeNode> worst = bestPicks();
+				Collections.reverse(worst);
+				invalidate(); // (fresh from bestPicks, so this reaches the ancestors too)
+				return worst;
+			}
+			
 			public void addChild(TreeNode child) {
+				child.parent = this;
 				children.add(child);
+				invalidate();
 			}
 			
 			public boolean isFull() {
 				return state.isFull();
 			}
+			
+			public boolean isExpanded() {
+				return !children.isEmpty();
+			}
+			
+			/**
+			 * @return whether the odds are already exact, so expanding would add nothing
+			 */
+			public boolean isSolved() {
+				return solved;
+			}
+			
+			/**
+			 * Replaces the greedy estimate with the exact {@link #solveEndgame(DraftState) endgame} odds
+			 */
+			public void solve() {
+				currentOdds = solveEndgame(state);
+				solved = true;
+				invalidate();
+			}
+			
+			/**
+			 * Marks this node and its ancestors for recomputation. 
+			 * A stale node's ancestors are always stale too, so the walk stops at the first one already marked.
+			 * <p>
+			 * Parallel expansion marks shared ancestors from several threads, so the mark is volatile; 
+			 * and {@link #refresh()} clears it before reading anything, so a mark racing a refresh is kept, not lost.
+			 */
+			private void invalidate() {
+				for (TreeNode node = this; node != null && !node.stale; node = node.parent)
+					node.stale = true;
+			}
+			
+			/**
+			 * Recomputes stale children first, then re-sorts: at most once per change below, 
+			 * and nearly sorted children sort in about linear time
+			 * <p>
+			 * Reads the whole subtree without locks, which is safe because nothing else writes to it meanwhile. 
+			 * A node is refreshed only by the thread iterating it or its parent (sorting by its odds), 
+			 * and only before forking the node's subtree or after joining it: a parallel subtree writes 
+			 * below its own root, and above it only the volatile {@link #stale} marks. 
+			 * Fork and join order the rest: children created by an {@link Expansion} are joined before they are added, 
+			 * and every write an {@link Iteration} makes happens-before the return of the join that waits for it, 
+			 * so the refresh after it sees them. Searches over a kept tree follow one another under 
+			 * the {@link EngineSession}'s lock, and pondering is stopped and joined before the next.
+			 */
+			private void refresh() {
+				stale = false;
+				for (TreeNode child : children)
+					if (child.stale)
+						child.refresh();
+				Collections.sort(children);
+				odds = children.isEmpty() ? currentOdds : Math.max(currentOdds, children.get(0).odds);
+			}
 	
 			@Override
 			public int compareTo(TreeNode o) {
 				// "higher" scores come "first" -> (.70, .65, .55, ...)
-				return o.odds().compareTo(odds());
+				return Double.compare(o.odds(), odds());
 			}
 		}
 	
@@ -0,0 +1,146 @@
+package algorithm;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import draft.Format;
+
+/**
+ * Running totals of every {@link SearchStats measured search} of one {@link Engine} (and those {@link Engine#reloaded reloaded} from it),
+ * and how long they took, overall and by the phase searched from.
+ * <p>
+ * Searches only count towards their own stats as they run; these are added up once each finishes,
+ * so keeping them costs next to nothing. Pondering in the background is not counted.
+ * To watch them from JConsole or the like, {@link #register(String) register} them as an MBean.
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+
+	private static final int PHASES = maxPhases() + 1; // (a full draft can be "searched" too)
+
+	private volatile Engine engine; // whose caches to report on
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder bookAnswers = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder fills = new LongAdder();
+	private final LongAdder fillSteps = new LongAdder();
+	private final LongAdder endgames = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LatencyHistogram[] phaseLatency = new LatencyHistogram[PHASES];
+
+	EngineMetrics(Engine engine) {
+		this.engine = engine;
+		for (int i = 0; i < PHASES; i++)
+			phaseLatency[i] = new LatencyHistogram();
+	}
+
+	/**
+	 * Reports on the caches of the given engine from now on, e.g. one {@link Engine#reloaded(data.HeroMatrix) reloaded}
+	 * from the engine before; the totals carry on
+	 */
+	void attach(Engine engine) {
+		this.engine = engine;
+	}
+
+	private static int maxPhases() {
+		int max = 0;
+		for (Format format : Format.values())
+			max = Math.max(max, format.size());
+		return max;
+	}
+
+	void record(SearchStats stats) {
+		searches.increment();
+		if (stats.isFromBook())
+			bookAnswers.increment();
+		nodes.add(stats.getNodes());
+		fills.add(stats.getFills());
+		fillSteps.add(stats.getFillSteps());
+		endgames.add(stats.getEndgames());
+		latency.record(stats.getNanos());
+		phaseLatency[Math.min(stats.getPhase(), PHASES - 1)].record(stats.getNanos());
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server, as {@code metamainframe:type=Engine,name=<name>}
+	 *
+	 * @return the name registered under, to {@link #unregister(ObjectName) unregister} with
+	 * @throws JMException if the name is invalid or already taken
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName("metamainframe:type=Engine,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	public static void unregister(ObjectName name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	}
+
+	@Override public long getSearches() { return searches.sum(); }
+	/** @return searches the opening book answered */
+	@Override public long getBookAnswers() { return bookAnswers.sum(); }
+	@Override public long getNodes() { return nodes.sum(); }
+	@Override public long getFills() { return fills.sum(); }
+	@Override public long getFillSteps() { return fillSteps.sum(); }
+	@Override public long getEndgames() { return endgames.sum(); }
+
+	@Override public double getTableHitRate() { return engine.getTranspositionTable().hitRate(); }
+	@Override public double getResultCacheHitRate() { return engine.getResultCache().hitRate(); }
+
+	@Override public double getMeanMillis() { return latency.meanMillis(); }
+	@Override public double getP50Millis() { return latency.percentileMillis(.5); }
+	@Override public double getP99Millis() { return latency.percentileMillis(.99); }
+	@Override public double getMaxMillis() { return latency.maxMillis(); }
+
+	@Override
+	public long[] getPhaseSearches() {
+		long[] counts = new long[PHASES];
+		for (int i = 0; i < PHASES; i++)
+			counts[i] = phaseLatency[i].count();
+		return counts;
+	}
+
+	@Override
+	public double[] getPhaseP50Millis() {
+		return phasePercentiles(.5);
+	}
+
+	@Override
+	public double[] getPhaseP99Millis() {
+		return phasePercentiles(.99);
+	}
+
+	private double[] phasePercentiles(double quantile) {
+		double[] millis = new double[PHASES];
+		for (int i = 0; i < PHASES; i++)
+			millis[i] = phaseLatency[i].percentileMillis(quantile);
+		return millis;
+	}
+
+	/**
+	 * Starts the totals over; racing searches may be counted in part
+	 */
+	@Override
+	public void reset() {
+		searches.reset();
+		bookAnswers.reset();
+		nodes.reset();
+		fills.reset();
+		fillSteps.reset();
+		endgames.reset();
+		latency.reset();
+		for (LatencyHistogram histogram : phaseLatency)
+			histogram.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("EngineMetrics[%d searches (%d from book): %.3f ms mean, %.3f p50, %.3f p99, %.3f max; "
+				+ "%d nodes, %d fills (%d steps), %d endgames]",
+				getSearches(), getBookAnswers(), getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis(),
+				getNodes(), getFills(), getFillSteps(), getEndgames());
+	}
+}
@@ -0,0 +1,29 @@
+package algorithm;
+
+/**
+ * The JMX view of {@link EngineMetrics}
+ */
+public interface EngineMetricsMBean {
+
+	long getSearches();
+	long getBookAnswers();
+	long getNodes();
+	long getFills();
+	long getFillSteps();
+	long getEndgames();
+
+	double getTableHitRate();
+	double getResultCacheHitRate();
+
+	double getMeanMillis();
+	double getP50Millis();
+	double getP99Millis();
+	double getMaxMillis();
+
+	/** @return searches by the phase they started from */
+	long[] getPhaseSearches();
+	double[] getPhaseP50Millis();
+	double[] getPhaseP99Millis();
+
+	void reset();
+}
@@ -0,0 +1,191 @@
+package algorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import data.Hero;
+import data.Pick;
+import draft.DraftSession;
+import draft.DraftState;
+import draft.Format;
+
+/**
+ * A draft followed from phase to phase, keeping the {@link Algorithm#PRUNING} search tree between them.
+ * <p>
+ * After each {@link #pickOrBan(Hero)} the tree is re-rooted at the chosen option, and the next search
+ * continues from there as deeply as the previous one explored that option, instead of starting over:
+ * the chosen subtree already holds most of the answer, so later phases cost little.
+ * (Each answer is as deep as the previous search's view of that position, rather than a fresh search's.)
+ * Other algorithms search afresh each phase. The tree also outlives changes to the engine's settings;
+ * open a new session to start clean. When the engine is {@link Engine#reloaded(data.HeroMatrix) reloaded}, 
+ * its registry moves the session over to the new engine, with a new tree.
+ * <p>
+ * While waiting for the next selection, the session can {@link #ponder(int) ponder} the likeliest ones in the background.
+ * <p>
+ * Thread-safe, but one search at a time; for concurrent drafts, open one session each.
+ */
+public class EngineSession {
+
+	private final Engine engine;
+	private final String id;
+	private final DraftSession draft;
+	private final List<Hero> selected = new ArrayList<>(); // {@code null} for skips
+	private Engine.TreeNode tree;
+	private int depth; // of the tree's root in the search that built it
+	private List<Pick> suggestions; // for the current phase, once searched
+	private Thread ponderer;
+	private AtomicBoolean cancelled; // the ponderer's
+	private Map<DraftState, List<Pick>> pondered = new HashMap<>(); // suggestions searched ahead; read once the ponderer stops
+
+	public EngineSession(Engine engine, Format format) {
+		this(engine, UUID.randomUUID().toString(), format);
+	}
+
+	EngineSession(Engine engine, String id, Format format) {
+		this.engine = engine;
+		this.id = id;
+		this.draft = new DraftSession(format);
+		this.tree = engine.plant(draft.getState());
+	}
+
+	/**
+	 * @return the key of this session in its engine's {@link Engine#getSession(String) registry}, if it is there
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return a snapshot of the draft so far
+	 */
+	public synchronized DraftSession getDraft() {
+		return draft.clone();
+	}
+
+	public synchronized DraftState getState() {
+		return draft.getState();
+	}
+
+	public synchronized boolean isFull() {
+		return draft.isFull();
+	}
+
+	/**
+	 * @return all possible picks, with resulting odds that blue wins; the same list until the next selection
+	 */
+	public synchronized List<Pick> suggestions() {
+		if (suggestions == null)
+			suggestions = engine.suggestions(draft, tree, depth);
+		return suggestions;
+	}
+
+	/**
+	 * Pass {@code null} to skip a hero (e.g., skip a ban).
+	 */
+	public synchronized void pickOrBan(Hero next) {
+		stopPondering();
+		draft.pickOrBan(next);
+		selected.add(next);
+		tree = engine.reroot(tree, draft.getState());
+		depth = 1;
+		if (tree == null) { // e.g. a skipped ban
+			tree = engine.plant(draft.getState());
+			depth = 0;
+		}
+		suggestions = pondered.get(draft.getState()); // the same search, done already
+		pondered = new HashMap<>();
+	}
+
+	/**
+	 * Searches ahead, on a background thread, the positions after the given number of top {@link #suggestions()}, 
+	 * best first: what the session would search once one of them is selected. 
+	 * The next selection stops it; if it was one of these, the work done for it is kept, 
+	 * and the next suggestions are ready sooner: at once, and just as without pondering, if it got through. 
+	 * (A search resumed partway may dive into slightly different options.)
+	 */
+	public synchronized void ponder(int options) {
+		stopPondering();
+		if (draft.isFull())
+			return;
+		List<Engine.TreeNode> next = new ArrayList<>(options);
+		for (Pick pick : suggestions()) {
+			if (next.size() == options)
+				break;
+			Engine.TreeNode child = engine.child(tree, draft.getState().whatIf(pick.getCandidate()));
+			if (child != null)
+				next.add(child);
+		}
+		
+		AtomicBoolean cancelled = new AtomicBoolean();
+		Map<DraftState, List<Pick>> pondered = this.pondered;
+		ponderer = new Thread(() -> {
+			for (Engine.TreeNode child : next) {
+				List<Pick> picks = engine.ponder(child, cancelled::get);
+				if (picks != null)
+					pondered.put(child.getState(), picks);
+			}
+		}, "ponder-" + id);
+		ponderer.setDaemon(true); // never keeps the application alive
+		ponderer.setPriority(Thread.MIN_PRIORITY);
+		this.cancelled = cancelled;
+		ponderer.start();
+	}
+	
+	/**
+	 * Cancels pondering and waits for it to stop, before anything else touches the tree
+	 */
+	private void stopPondering() {
+		if (ponderer == null)
+			return;
+		cancelled.set(true);
+		boolean interrupted = false;
+		while (true) {
+			try {
+				ponderer.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true; // keep waiting: it stops at the next node
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		ponderer = null;
+		cancelled = null;
+	}
+	
+	/**
+	 * For an engine {@link Engine#reloaded(data.HeroMatrix) reloaded} from this one's: a session on it under the same id, 
+	 * at the same point of the same draft. Its tree starts over, as nothing searched on the old matrix applies to the new one. 
+	 * Waits for a search in progress on this session; selections made here afterwards are not carried over, 
+	 * but {@link #coachMeSenpai(Format, List)} on the moved session catches up with them.
+	 */
+	synchronized EngineSession movedTo(Engine next) {
+		EngineSession moved = new EngineSession(next, id, draft.getFormat());
+		for (Hero hero : selected)
+			moved.pickOrBan(hero);
+		return moved;
+	}
+	
+	/**
+	 * Catches up with a draft that continues this one, then advises on it as {@link Engine#coachMeSenpai(String, List)} does
+	 *
+	 * @return {@code null}, having changed nothing, if the draft does not continue this one
+	 */
+	synchronized Map<String, Integer> coachMeSenpai(Format format, List<Hero> heroes) {
+		if (format != draft.getFormat() || heroes.size() < selected.size()
+				|| !heroes.subList(0, selected.size()).equals(selected))
+			return null;
+		for (Hero hero : heroes.subList(selected.size(), heroes.size()))
+			pickOrBan(hero);
+		return engine.advice(draft, draft.isFull() ? null : suggestions());
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "EngineSession[" + id + ": " + draft.getBlue() + " vs. " + draft.getRed() + "]";
+	}
+}
@@ -0,0 +1,80 @@
+package algorithm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations, in log-linear buckets of microseconds:
+ * exact below 8 us, then 8 buckets per power of two, so any percentile is within 12.5% of the truth.
+ */
+class LatencyHistogram {
+
+	private static final int SUB_BITS = 3;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 40; // 2^40 us: some 12 days
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	void record(long nanos) {
+		counts.incrementAndGet(bucket(nanos / 1000));
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	long count() { return count.sum(); }
+	double meanMillis() {
+		long n = count.sum();
+		return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+	}
+	double maxMillis() { return maxNanos.get() / 1e6; }
+
+	/**
+	 * @param quantile between 0 and 1, e.g. .99
+	 * @return the upper end of the bucket holding that quantile, in milliseconds; 0 if empty
+	 */
+	double percentileMillis(double quantile) {
+		long n = count.sum();
+		if (n == 0)
+			return 0;
+		long rank = (long) Math.ceil(quantile * n);
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += counts.get(b);
+			if (seen >= Math.max(rank, 1))
+				return b < BUCKETS - 1 ? lowerBound(b + 1) / 1e3 : maxMillis(); // (the last takes anything longer)
+		}
+		return maxMillis(); // (racing a record)
+	}
+
+	void reset() {
+		for (int b = 0; b < BUCKETS; b++)
+			counts.set(b, 0);
+		count.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+
+	static int bucket(long micros) {
+		if (micros < SUB)
+			return (int) micros;
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB - 1);
+		return Math.min((exponent - SUB_BITS + 1) * SUB + sub, BUCKETS - 1);
+	}
+
+	/**
+	 * @return the fewest microseconds that fall in the bucket
+	 */
+	static long lowerBound(int bucket) {
+		if (bucket < SUB)
+			return bucket;
+		int exponent = bucket / SUB + SUB_BITS - 1;
+		return (long) (SUB + bucket % SUB) << (exponent - SUB_BITS);
+	}
+}
@@ -0,0 +1,143 @@
+package algorithm;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import data.HeroMatrix;
+import data.MatrixLoader;
+
+/**
+ * The current {@link Engine}, swapped for a {@link Engine#reloaded(HeroMatrix) reloaded} one whenever a new matrix is published:
+ * by hand, or by {@link #watch(Path, String) watching} a directory for compiled matrices ({@link MatrixLoader#loadCompiled(Path)}).
+ * <p>
+ * A new matrix is loaded and its engine built off to the side, then published in one atomic swap,
+ * so serving never pauses. Take the engine once per request and use it to the end:
+ * requests in flight finish on the matrix they started with, while new ones get the new matrix and fresh caches.
+ * The old engine, and everything cached from the old matrix, is dropped once the last of them is done.
+ */
+public class MatrixProvider implements Supplier<Engine>, AutoCloseable {
+
+	/** file names {@code draft.MatrixCompiler} writes */
+	public static final String DEFAULT_GLOB = "*Matrix.bin";
+	// a file still being written keeps sending events: load once they stop for this long
+	private static final long QUIET_MILLIS = 200;
+
+	private final AtomicReference<Engine> current;
+	private WatchService watcher; // guarded by this
+
+	public MatrixProvider(Engine engine) {
+		this.current = new AtomicReference<>(engine);
+	}
+
+	/**
+	 * @return the engine for a new request
+	 */
+	@Override
+	public Engine get() {
+		return current.get();
+	}
+
+	/**
+	 * Swaps in an engine over the matrix, with the current one's settings
+	 *
+	 * @return the new engine
+	 */
+	public synchronized Engine publish(HeroMatrix matrix) {
+		Engine next = current.get().reloaded(matrix);
+		current.set(next);
+		return next;
+	}
+
+	/**
+	 * Publishes every compiled matrix that appears in (or is rewritten in) the directory from now on,
+	 * loading it on a background thread. Files that fail to load (e.g. half written) are skipped,
+	 * keeping the current matrix; so are those holding the same matrix as it.
+	 * To publish, write the file under another name and rename it into place.
+	 *
+	 * @param glob which file names are matrices, e.g. {@value #DEFAULT_GLOB}
+	 * @throws IllegalStateException if already watching
+	 */
+	public synchronized void watch(Path directory, String glob) throws IOException {
+		if (watcher != null)
+			throw new IllegalStateException("Already watching for matrices");
+		PathMatcher matrices = directory.getFileSystem().getPathMatcher("glob:" + glob);
+		WatchService service = directory.getFileSystem().newWatchService();
+		directory.register(service, ENTRY_CREATE, ENTRY_MODIFY);
+		watcher = service;
+
+		Thread thread = new Thread(() -> watch(service, directory, matrices), "matrix-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching, if watching; the current engine stays
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (watcher != null) {
+			watcher.close(); // (ends the watching thread)
+			watcher = null;
+		}
+	}
+
+	private void watch(WatchService service, Path directory, PathMatcher matrices) {
+		try {
+			while (true) {
+				Set<Path> changed = new LinkedHashSet<>();
+				if (!changed(service.take(), directory, matrices, changed))
+					return; // the directory is gone
+				for (WatchKey more; (more = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null; )
+					if (!changed(more, directory, matrices, changed))
+						return;
+				for (Path file : changed)
+					load(file);
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed: done
+		}
+	}
+
+	/**
+	 * Adds the matrices the key's events are about
+	 *
+	 * @return whether the directory is still watched
+	 */
+	private static boolean changed(WatchKey key, Path directory, PathMatcher matrices, Set<Path> changed) {
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object name = event.context(); // (null when events overflowed: the next one will do)
+			if (name instanceof Path && matrices.matches((Path) name))
+				changed.add(directory.resolve((Path) name));
+		}
+		return key.reset();
+	}
+
+	private void load(Path file) {
+		try {
+			HeroMatrix matrix = MatrixLoader.loadCompiled(file);
+			if (matrix.fingerprint() == get().getCalculator().getMatrix().fingerprint())
+				return; // (e.g. only touched)
+			publish(matrix);
+			System.out.println("Loaded new matrix from " + file);
+		} catch (NoSuchFileException e) {
+			// gone again, e.g. renamed into place under another name
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.println("Matrix reload from " + file + " failed! Continuing with the current one.");
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import data.Hero;
+import data.HeroMask;
+import data.Pick;
+import draft.DraftState;
+
+/**
+ * Monte Carlo Tree Search with UCT selection. Playouts follow the engine's greedy policy
+ * ({@link Engine#fillAndScore(DraftState)}), so a leaf's first visit costs one greedy fill.
+ * <p>
+ * An anytime algorithm: it stops whenever its {@link Budget} runs out,
+ * having spent most of its effort on the most contested branches.
+ */
+class MonteCarloSearch {
+
+	private final Engine engine;
+	private final double exploration;
+
+	/**
+	 * @param exploration UCT exploration weight. Win rates between drafts differ by hundredths,
+	 * 		so this should be far smaller than the textbook {@code sqrt(2)}.
+	 */
+	MonteCarloSearch(Engine engine, double exploration) {
+		this.engine = engine;
+		this.exploration = exploration;
+	}
+
+	/**
+	 * @return all possible picks, with their mean simulated odds that blue wins, best for the picking team first
+	 */
+	List<Pick> search(DraftState state, Budget budget) {
+		if (state.isFull())
+			return Collections.emptyList();
+		long start = System.nanoTime();
+		SearchNode root = new SearchNode(null, null, state);
+		root.expand();
+
+		long iterations = 0;
+		while (!budget.isSpent(start, iterations)) {
+			SearchNode node = root;
+			while (node.children != null)
+				node = node.select();
+			if (node.state.isFull())
+				node.backpropagate(1, node.mean()); // exact already; just reinforce it
+			else
+				node.expand();
+			iterations++;
+		}
+
+		List<Pick> picks = new ArrayList<>(root.children.size());
+		for (SearchNode child : root.children)
+			picks.add(new Pick(child.lastPick, child.mean()));
+		Collections.sort(picks);
+		if (!state.currentPhase().isBlue())
+			Collections.reverse(picks);
+		return picks;
+	}
+
+	private class SearchNode {
+		private final SearchNode parent;
+		private final Hero lastPick;
+		private final DraftState state;
+		private List<SearchNode> children;
+		private long visits;
+		private double totalOdds;
+
+		SearchNode(SearchNode parent, Hero lastPick, DraftState state) {
+			this.parent = parent;
+			this.lastPick = lastPick;
+			this.state = state;
+		}
+
+		double mean() {
+			return totalOdds / visits;
+		}
+
+		/**
+		 * Creates every child and plays each out once, greedily
+		 */
+		void expand() {
+			List<SearchNode> created = new ArrayList<>(HeroMask.size(state.poolMask()));
+			double sum = 0.0;
+			for (long pool = state.poolMask(); pool != 0; pool &= pool - 1) {
+				Hero hero = HeroMask.first(pool);
+				SearchNode child = new SearchNode(this, hero, state.whatIf(hero));
+				child.visits = 1;
+				child.totalOdds = engine.fillAndScore(child.state);
+				sum += child.totalOdds;
+				created.add(child);
+			}
+			children = created;
+			backpropagate(created.size(), sum);
+		}
+
+		/**
+		 * @return the child with the best upper confidence bound for the team picking here
+		 */
+		SearchNode select() {
+			boolean blue = state.currentPhase().isBlue();
+			double logVisits = Math.log(visits);
+			SearchNode best = null;
+			double bestBound = Double.NEGATIVE_INFINITY;
+			for (SearchNode child : children) {
+				double odds = blue ? child.mean() : 1 - child.mean();
+				double bound = odds + exploration * Math.sqrt(logVisits / child.visits);
+				if (best == null || bound > bestBound) {
+					best = child;
+					bestBound = bound;
+				}
+			}
+			return best;
+		}
+
+		void backpropagate(long playouts, double odds) {
+			for (SearchNode node = this; node != null; node = node.parent) {
+				node.visits += playouts;
+				node.totalOdds += odds;
+			}
+		}
+	}
+}
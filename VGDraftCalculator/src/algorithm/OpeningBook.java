@@ -0,0 +1,182 @@
+package algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import data.Hero;
+import data.HeroMatrix;
+import data.Pick;
+import draft.DraftSession;
+import draft.DraftState;
+import draft.Format;
+
+/**
+ * Precomputed suggestions for the first phases of a draft, where searches are the most expensive
+ * and distinct positions the fewest. {@link Engine} answers from it in O(1) when it covers the position.
+ * <p>
+ * Built offline by one {@link Algorithm} (see {@code draft.BookBuilder}) and stamped with the
+ * {@link HeroMatrix#fingerprint() fingerprint} of the matrix behind it: it applies to that matrix only,
+ * and only to engines {@link #isSearchedLike(Engine) searching like} the one that built it.
+ * Immutable, so safe to share.
+ */
+public class OpeningBook {
+
+	private static final int MAGIC = 0x56474F42; // "VGOB"
+	private static final int FILE_VERSION = 2;
+
+	private final long fingerprint;
+	private final Algorithm algorithm;
+	private final int searchDepth;
+	private final int endgameThreshold;
+	private final Map<DraftState, List<Pick>> positions;
+
+	private OpeningBook(long fingerprint, Algorithm algorithm, int searchDepth, int endgameThreshold, 
+			Map<DraftState, List<Pick>> positions) {
+		this.fingerprint = fingerprint;
+		this.algorithm = algorithm;
+		this.searchDepth = searchDepth;
+		this.endgameThreshold = endgameThreshold;
+		this.positions = positions;
+	}
+
+	/**
+	 * Searches every position reachable before the given phase of each format, in parallel,
+	 * with the engine's current algorithm and settings.
+	 */
+	public static OpeningBook build(Engine engine, int phases, Format... formats) {
+		Set<DraftState> reachable = new HashSet<>();
+		for (Format format : formats)
+			collect(new DraftState(format), phases, reachable);
+
+		Algorithm algorithm = engine.getAlgorithm();
+		Map<DraftState, List<Pick>> positions = new ConcurrentHashMap<>();
+		reachable.parallelStream().forEach(state -> positions.put(state,
+				Collections.unmodifiableList(engine.suggestions(new DraftSession(state), algorithm))));
+		return new OpeningBook(engine.getCalculator().getMatrix().fingerprint(), algorithm, 
+				engine.getSearchDepth(), engine.getEndgameThreshold(), new HashMap<>(positions));
+	}
+
+	private static void collect(DraftState state, int phases, Set<DraftState> reachable) {
+		if (state.isFull() || state.currentPhaseNo() >= phases || !reachable.add(state))
+			return;
+		for (long pool = state.poolMask(); pool != 0; pool &= pool - 1)
+			collect(state.whatIf(Hero.fromOrdinal(Long.numberOfTrailingZeros(pool))), phases, reachable);
+		if (!state.currentPhase().isPick())
+			collect(state.whatIf(null), phases, reachable); // a skipped ban
+	}
+
+	/**
+	 * @return the stored suggestions, best for the picking team first, or {@code null} if the position is not covered
+	 */
+	public List<Pick> get(DraftState state) {
+		return positions.get(state);
+	}
+
+	public Algorithm getAlgorithm() { return algorithm; }
+	public int getSearchDepth() { return searchDepth; }
+	public int getEndgameThreshold() { return endgameThreshold; }
+	public long getFingerprint() { return fingerprint; }
+	public int size() { return positions.size(); }
+
+	/**
+	 * @return whether the book was built from this matrix (as it is now)
+	 */
+	public boolean isFor(HeroMatrix matrix) {
+		return fingerprint == matrix.fingerprint();
+	}
+
+	/**
+	 * @return whether the engine searches with the settings the book was built with, 
+	 * 		so that its answers are the ones the engine's own search would give
+	 */
+	public boolean isSearchedLike(Engine engine) {
+		return searchDepth == engine.getSearchDepth() && endgameThreshold == engine.getEndgameThreshold();
+	}
+
+	////////////////
+	//   Binary   //
+	////////////////
+
+	// header: magic, file version, matrix fingerprint, algorithm name, search depth, endgame threshold, position count; then per position:
+	// format and phase (a byte each), blue, red and banned masks (an int each),
+	// and the suggestions (count, then hero ordinal and odds for each)
+
+	public void write(Path file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeLong(fingerprint);
+			out.writeUTF(algorithm.name());
+			out.writeInt(searchDepth);
+			out.writeInt(endgameThreshold);
+			out.writeInt(positions.size());
+			for (Map.Entry<DraftState, List<Pick>> position : positions.entrySet()) {
+				DraftState state = position.getKey();
+				out.writeByte(state.getFormat().ordinal());
+				out.writeByte(state.currentPhaseNo());
+				out.writeInt((int) state.blueMask());
+				out.writeInt((int) state.redMask());
+				out.writeInt((int) state.bannedMask());
+				List<Pick> picks = position.getValue();
+				out.writeByte(picks.size());
+				for (Pick pick : picks) {
+					out.writeByte(pick.getCandidate().ordinal());
+					out.writeDouble(pick.getScore());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @throws IOException also if the file is not an opening book of this version
+	 */
+	public static OpeningBook read(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not an opening book: " + file);
+			int version = in.readInt();
+			if (version != FILE_VERSION)
+				throw new IOException("Unsupported opening book version " + version + ": " + file);
+			long fingerprint = in.readLong();
+			Algorithm algorithm = Algorithm.valueOf(in.readUTF());
+			int searchDepth = in.readInt();
+			int endgameThreshold = in.readInt();
+			int size = in.readInt();
+			Map<DraftState, List<Pick>> positions = new HashMap<>(size * 4 / 3 + 1);
+			for (int i = 0; i < size; i++) {
+				Format format = Format.values()[in.readUnsignedByte()];
+				int phase = in.readUnsignedByte();
+				long blue = in.readInt() & 0xFFFFFFFFL;
+				long red = in.readInt() & 0xFFFFFFFFL;
+				long banned = in.readInt() & 0xFFFFFFFFL;
+				int count = in.readUnsignedByte();
+				List<Pick> picks = new ArrayList<>(count);
+				for (int j = 0; j < count; j++)
+					picks.add(new Pick(Hero.fromOrdinal(in.readUnsignedByte()), in.readDouble()));
+				positions.put(DraftState.of(format, blue, red, banned, phase), Collections.unmodifiableList(picks));
+			}
+			return new OpeningBook(fingerprint, algorithm, searchDepth, endgameThreshold, positions);
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException("Corrupt opening book: " + file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "OpeningBook[" + algorithm + " at depth " + searchDepth + ", endgame " + endgameThreshold + ", " 
+				+ positions.size() + " positions]";
+	}
+}
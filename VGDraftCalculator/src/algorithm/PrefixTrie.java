@@ -0,0 +1,91 @@
+package algorithm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import data.Hero;
+import draft.DraftState;
+
+/**
+ * Draft prefixes merged on their common beginnings, for {@link Engine#coachAll}:
+ * each distinct position is built only once, and evaluated only once (names are matched as {@link Hero#fromName} does).
+ * Each requested prefix is evaluated from what the one before it computed.
+ *
+ * @param <N> what an evaluation computes, and hands on to the prefixes that continue it
+ * @param <V> the result of an evaluation, kept for {@link #join()}
+ */
+class PrefixTrie<N, V> {
+
+	private final DraftState state;
+	private final Map<Hero, PrefixTrie<N, V>> children = new HashMap<>();
+	private boolean requested;
+	private CompletableFuture<V> result; // once scheduled, for requested prefixes only
+
+	PrefixTrie(DraftState state) {
+		this.state = state;
+	}
+
+	/**
+	 * @return the node of the given prefix below this one, now requested
+	 * @throws IllegalArgumentException if a name is not a hero's
+	 */
+	PrefixTrie<N, V> add(List<String> selected) {
+		PrefixTrie<N, V> node = this;
+		for (String name : selected) {
+			PrefixTrie<N, V> parent = node;
+			node = parent.children.computeIfAbsent(Hero.fromName(name), hero -> new PrefixTrie<>(parent.state.whatIf(hero)));
+		}
+		node.requested = true;
+		return node;
+	}
+
+	/**
+	 * Evaluates every requested prefix on the executor, from what the nearest requested prefix above it computed,
+	 * as soon as that is ready: siblings start together, and separate branches run in parallel.
+	 * Only the results are kept; what was computed is let go once the prefixes that continue it have it.
+	 *
+	 * @param follow hands what was computed for a prefix on to the prefix one selection longer, 
+	 * 		on the way to the next requested one; cheap, as it runs on whichever thread finished the computation
+	 * @param evaluate computes a requested prefix from what was handed on to it: 
+	 * 		{@code null} if nothing was, or if computing it failed
+	 * @param output what to keep of a computation, as the prefix's result
+	 */
+	void schedule(BiFunction<N, DraftState, N> follow, BiFunction<N, DraftState, N> evaluate, Function<N, V> output,
+			Executor executor) {
+		schedule(CompletableFuture.completedFuture(null), follow, evaluate, output, executor);
+	}
+
+	private void schedule(CompletableFuture<N> handed, BiFunction<N, DraftState, N> follow, 
+			BiFunction<N, DraftState, N> evaluate, Function<N, V> output, Executor executor) {
+		CompletableFuture<N> computed = handed;
+		if (requested) {
+			computed = handed.thenApplyAsync(from -> evaluate.apply(from, state), executor);
+			result = computed.thenApply(output);
+		}
+		CompletableFuture<N> next = computed.exceptionally(e -> null); // (a failed prefix only fails itself)
+		for (PrefixTrie<N, V> child : children.values())
+			child.schedule(next.thenApply(from -> from == null ? null : follow.apply(from, child.state)), 
+					follow, evaluate, output, executor);
+	}
+
+	/**
+	 * Waits for this prefix's result, rethrowing what its evaluation threw
+	 */
+	V join() {
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
+	}
+}
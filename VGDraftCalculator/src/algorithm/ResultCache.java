@@ -0,0 +1,113 @@
+package algorithm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import draft.DraftState;
+
+/**
+ * Bounded, thread-safe cache of finished results, least recently used out first.
+ * <p>
+ * Keyed by {@link DraftState}, so pick order within a roster and ban order don't matter.
+ * Entries belong to one version of what is behind them (e.g. the {@link data.HeroMatrix#version() matrix}, 
+ * and the settings searched with): the first lookup or store with a newer version drops them all. 
+ * Versions only go forward: a result from an older one (e.g. of a search that started before the matrix 
+ * or the settings changed) is not stored, and lookups with one miss.
+ * <p>
+ * Results are computed outside the lock, so two threads missing on the same state may both compute it.
+ */
+public class ResultCache<V> {
+
+	private final int capacity;
+	private final LinkedHashMap<DraftState, V> entries;
+	private long version; // of the matrix the entries were computed from
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public ResultCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<DraftState, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<DraftState, V> eldest) {
+				if (size() <= ResultCache.this.capacity)
+					return false;
+				evictions.increment();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * @return the stored result for the state, or {@code null} if absent or computed from another version
+	 */
+	public synchronized V get(DraftState state, long version) {
+		V value = ensure(version) ? entries.get(state) : null;
+		(value == null ? misses : hits).increment();
+		return value;
+	}
+
+	/**
+	 * @return whether {@link #get} would find the state; without counting as a lookup or touching its recency
+	 */
+	public synchronized boolean contains(DraftState state, long version) {
+		return version == this.version && entries.containsKey(state);
+	}
+
+	/**
+	 * Stores the result, unless computed from an older version than the entries'
+	 */
+	public synchronized void put(DraftState state, long version, V value) {
+		if (ensure(version))
+			entries.put(state, value);
+	}
+
+	/**
+	 * Moves on to the given version if newer, dropping every entry
+	 *
+	 * @return whether the entries are of the given version now; {@code false} if it's older
+	 */
+	private boolean ensure(long version) {
+		if (version < this.version)
+			return false;
+		if (version > this.version) {
+			entries.clear();
+			this.version = version;
+		}
+		return true;
+	}
+
+	/**
+	 * Drops every entry, keeping the version
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() { return entries.size(); }
+	public int capacity() { return capacity; }
+	public long hits() { return hits.sum(); }
+	public long misses() { return misses.sum(); }
+	public long evictions() { return evictions.sum(); }
+
+	/**
+	 * @return fraction of lookups answered from the cache, or 0 if there were none
+	 */
+	public double hitRate() {
+		long hits = hits();
+		long lookups = hits + misses();
+		return lookups == 0 ? 0.0 : hits / (double) lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ResultCache[%d of %d: %d hits, %d misses (%.1f%%), %d evictions]",
+				size(), capacity, hits(), misses(), 100 * hitRate(), evictions());
+	}
+}
@@ -0,0 +1,46 @@
+package algorithm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A {@link SearchStats measured search}, for JDK Flight Recorder.
+ * Off unless a recording enables it; then it costs one commit per search.
+ */
+@Name("metamainframe.Search")
+@Label("Draft Search")
+@Category("Meta Mainframe")
+@Description("One search for suggestions, from a draft position")
+@StackTrace(false)
+class SearchEvent extends jdk.jfr.Event {
+
+	@Label("Format")
+	String format;
+
+	@Label("Phase")
+	int phase;
+
+	@Label("Algorithm")
+	String algorithm;
+
+	@Label("From Book")
+	boolean fromBook;
+
+	@Label("Tree Nodes")
+	long nodes;
+
+	@Label("Greedy Fills")
+	long fills;
+
+	@Label("Fill Steps")
+	long fillSteps;
+
+	@Label("Endgames Solved")
+	long endgames;
+
+	@Label("Depth")
+	int depth;
+}
@@ -0,0 +1,59 @@
+package algorithm;
+
+import java.util.List;
+
+import data.Pick;
+
+/**
+ * Suggestions from a search, along with how far the search got and what it took.
+ */
+public class SearchResult {
+
+	private final List<Pick> picks;
+	private final int depth;
+	private final boolean complete;
+	private final SearchStats stats;
+
+	public SearchResult(List<Pick> picks, int depth, boolean complete) {
+		this(picks, depth, complete, null);
+	}
+
+	private SearchResult(List<Pick> picks, int depth, boolean complete, SearchStats stats) {
+		this.picks = picks;
+		this.depth = depth;
+		this.complete = complete;
+		this.stats = stats;
+	}
+
+	/**
+	 * @return this result, along with what its search took
+	 */
+	SearchResult measured(SearchStats stats) {
+		return new SearchResult(picks, depth, complete, stats);
+	}
+
+	/**
+	 * @return all possible picks, with resulting odds that blue wins, best for the picking team first
+	 */
+	public List<Pick> getPicks() { return picks; }
+
+	/**
+	 * @return number of phases searched exactly before falling back to a greedy fill
+	 */
+	public int getDepth() { return depth; }
+
+	/**
+	 * @return whether the search reached the end of the draft, so deeper searches would not change it
+	 */
+	public boolean isComplete() { return complete; }
+
+	/**
+	 * @return what the search took; {@code null} if it was not measured on its own, being part of a larger one
+	 */
+	public SearchStats getStats() { return stats; }
+
+	@Override
+	public String toString() {
+		return "SearchResult[depth " + depth + (complete ? ", complete" : "") + ": " + picks + "]";
+	}
+}
@@ -0,0 +1,127 @@
+package algorithm;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import draft.DraftState;
+import draft.Format;
+
+/**
+ * What one search did: how many tree nodes it made, how many greedy fills it ran and how far they went,
+ * how deep it got, and how long it took. Returned with its {@link SearchResult},
+ * and added up across searches in the engine's {@link EngineMetrics}.
+ * <p>
+ * Counted from every thread the search forks to; the counts are final once the search returns.
+ */
+public final class SearchStats {
+
+	// the search running on each thread, if measured; fork-join tasks carry theirs over (see #install)
+	private static final ThreadLocal<SearchStats> CURRENT = new ThreadLocal<>();
+
+	private final Format format;
+	private final int phase;
+	private final Algorithm algorithm;
+	private final long start = System.nanoTime();
+	private long nanos;
+	private boolean fromBook;
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder fills = new LongAdder();
+	private final LongAdder fillHits = new LongAdder();
+	private final LongAdder fillSteps = new LongAdder();
+	private final LongAdder endgames = new LongAdder();
+	private final LongAccumulator deepestPhase;
+	private final SearchEvent event = new SearchEvent();
+
+	SearchStats(DraftState root, Algorithm algorithm) {
+		this.format = root.getFormat();
+		this.phase = root.currentPhaseNo();
+		this.algorithm = algorithm;
+		this.deepestPhase = new LongAccumulator(Math::max, phase);
+		event.begin();
+	}
+
+	/**
+	 * @return the search running on the calling thread, or {@code null} if none is measured
+	 */
+	static SearchStats current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Makes the calling thread count towards the given search (or none)
+	 *
+	 * @return the search it counted towards before, to put back when done
+	 */
+	static SearchStats install(SearchStats stats) {
+		SearchStats previous = CURRENT.get();
+		CURRENT.set(stats);
+		return previous;
+	}
+
+	void answeredFromBook() { fromBook = true; }
+	void expanded(int children) { nodes.add(children); }
+	void endgameSolved() { endgames.increment(); }
+
+	/**
+	 * @param steps greedy selections played out; none if the table had the odds
+	 */
+	void filled(int steps) {
+		fills.increment();
+		if (steps == 0)
+			fillHits.increment();
+		else
+			fillSteps.add(steps);
+	}
+
+	/**
+	 * @param phaseNumber a phase the search looked at exactly, for {@link #getDepth()}
+	 */
+	void reached(int phaseNumber) {
+		deepestPhase.accumulate(phaseNumber);
+	}
+
+	void finish() {
+		nanos = System.nanoTime() - start;
+		event.end();
+		if (event.shouldCommit()) {
+			event.format = format.name();
+			event.phase = phase;
+			event.algorithm = algorithm.name();
+			event.fromBook = fromBook;
+			event.nodes = getNodes();
+			event.fills = getFills();
+			event.fillSteps = getFillSteps();
+			event.endgames = getEndgames();
+			event.depth = getDepth();
+			event.commit();
+		}
+	}
+
+	public Format getFormat() { return format; }
+	/** @return the phase number searched from */
+	public int getPhase() { return phase; }
+	public Algorithm getAlgorithm() { return algorithm; }
+	/** @return whether the {@link Engine#getOpeningBook() opening book} answered, so nothing was searched */
+	public boolean isFromBook() { return fromBook; }
+	/** @return tree nodes made (and each scored by a greedy fill) */
+	public long getNodes() { return nodes.sum(); }
+	/** @return calls to {@link Engine#fillAndScore(DraftState)} */
+	public long getFills() { return fills.sum(); }
+	/** @return fills the {@link Engine#getTranspositionTable() table} answered outright */
+	public long getFillHits() { return fillHits.sum(); }
+	/** @return greedy selections played out by fills, in total */
+	public long getFillSteps() { return fillSteps.sum(); }
+	/** @return endgames {@link Engine#solveEndgame(DraftState) solved} exactly */
+	public long getEndgames() { return endgames.sum(); }
+	/** @return most phases the search looked ahead exactly, before falling back to greedy fills */
+	public int getDepth() { return (int) deepestPhase.get() - phase; }
+	public long getNanos() { return nanos; }
+	public double getMillis() { return nanos / 1e6; }
+
+	@Override
+	public String toString() {
+		return String.format("SearchStats[%s phase %d, %s%s: %.3f ms, depth %d, %d nodes, %d fills (%d hits, %d steps), %d endgames]",
+				format, phase, algorithm, fromBook ? " from book" : "", getMillis(), getDepth(),
+				getNodes(), getFills(), getFillHits(), getFillSteps(), getEndgames());
+	}
+}
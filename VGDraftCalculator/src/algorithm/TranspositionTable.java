@@ -0,0 +1,175 @@
+package algorithm;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import draft.DraftState;
+
+/**
+ * Bounded cache of odds for blue, keyed by canonical {@link DraftState} (see {@link DraftState#zobrist()}).
+ * <p>
+ * Organized as a set-associative table: each state hashes to one small bucket,
+ * and a full bucket makes room according to the configured {@link Eviction} policy.
+ * <p>
+ * Thread-safe, so parallel searches can share one table: stores are guarded by striped locks, 
+ * and lookups take none. An entry is immutable but for its stamp, and holds its own key, 
+ * so a lookup racing a store sees a whole entry or none, and checks it is the state asked for; 
+ * at worst it misses an entry being stored. Only {@link Eviction#LEAST_RECENTLY_USED} takes the lock on a hit, 
+ * to stamp the entry.
+ */
+public class TranspositionTable {
+
+	public enum Eviction {
+		/** replace the oldest entry in the bucket */
+		ALWAYS_REPLACE,
+		/** replace the entry with the fewest remaining phases (cheapest to recompute), oldest first */
+		DEPTH_PREFERRED,
+		/** replace the entry in the bucket that was least recently stored or read */
+		LEAST_RECENTLY_USED
+	}
+
+	private static final int WAYS = 4;
+	private static final int MAX_STRIPES = 64;
+
+	private final Entry[] entries;
+	private final int bucketMask;
+	private final Eviction eviction;
+	// a bucket only ever compares stamps among its own entries, so each stripe keeps its own clock
+	private final Object[] locks;
+	private final long[] clocks;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param capacity maximum number of entries, rounded up to a power of two
+	 */
+	public TranspositionTable(int capacity, Eviction eviction) {
+		int wanted = Math.max(1, (capacity + WAYS - 1) / WAYS);
+		int buckets = Integer.highestOneBit(wanted);
+		if (buckets < wanted)
+			buckets <<= 1;
+		this.entries = new Entry[buckets * WAYS];
+		this.bucketMask = buckets - 1;
+		this.eviction = eviction;
+		this.locks = new Object[Math.min(buckets, MAX_STRIPES)];
+		for (int i = 0; i < locks.length; i++)
+			locks[i] = new Object();
+		this.clocks = new long[locks.length];
+	}
+
+	/**
+	 * @return the stored odds for the given state, or {@code null} if absent
+	 */
+	public Double get(DraftState state) {
+		int bucket = bucket(state);
+		int base = bucket * WAYS;
+		for (int i = base; i < base + WAYS; i++) {
+			Entry entry = entries[i]; // (racy: see above)
+			if (entry != null && entry.matches(state)) {
+				if (eviction == Eviction.LEAST_RECENTLY_USED) {
+					int stripe = bucket & (locks.length - 1);
+					synchronized (locks[stripe]) {
+						entry.stamp = ++clocks[stripe];
+					}
+				}
+				hits.increment();
+				return entry.odds;
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	public void put(DraftState state, double odds) {
+		stores.increment();
+		int bucket = bucket(state);
+		int stripe = bucket & (locks.length - 1);
+		int base = bucket * WAYS;
+		synchronized (locks[stripe]) {
+			int victim = -1;
+			for (int i = base; i < base + WAYS; i++) {
+				Entry entry = entries[i];
+				if (entry == null || entry.matches(state)) {
+					entries[i] = new Entry(state, odds, ++clocks[stripe]);
+					return;
+				}
+				if (victim < 0 || evictsBefore(entry, entries[victim]))
+					victim = i;
+			}
+			entries[victim] = new Entry(state, odds, ++clocks[stripe]);
+		}
+		evictions.increment();
+	}
+
+	public void clear() {
+		for (int stripe = 0; stripe < locks.length; stripe++) {
+			synchronized (locks[stripe]) {
+				for (int bucket = stripe; bucket <= bucketMask; bucket += locks.length)
+					for (int i = bucket * WAYS; i < (bucket + 1) * WAYS; i++)
+						entries[i] = null;
+			}
+		}
+		hits.reset();
+		misses.reset();
+		stores.reset();
+		evictions.reset();
+	}
+
+	public int capacity() { return entries.length; }
+	public Eviction getEviction() { return eviction; }
+	public long hits() { return hits.sum(); }
+	public long misses() { return misses.sum(); }
+	public long stores() { return stores.sum(); }
+	public long evictions() { return evictions.sum(); }
+
+	/**
+	 * @return fraction of lookups answered from the table, or 0 if there were none
+	 */
+	public double hitRate() {
+		long hits = hits();
+		long lookups = hits + misses();
+		return lookups == 0 ? 0.0 : hits / (double) lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TranspositionTable[%s, capacity %d: %d hits, %d misses (%.1f%%), %d stores, %d evictions]",
+				eviction, capacity(), hits(), misses(), 100 * hitRate(), stores(), evictions());
+	}
+
+	private int bucket(DraftState state) {
+		long z = state.zobrist();
+		return (int) (z ^ (z >>> 32)) & bucketMask;
+	}
+
+	private boolean evictsBefore(Entry one, Entry other) {
+		if (eviction == Eviction.DEPTH_PREFERRED) {
+			int depth = one.state.remainingPhases();
+			int otherDepth = other.state.remainingPhases();
+			if (depth != otherDepth)
+				return depth < otherDepth;
+		}
+		return one.stamp < other.stamp;
+	}
+
+	/**
+	 * Final fields, so that a lookup reading one without the lock still sees it whole
+	 */
+	private static class Entry {
+		private final DraftState state;
+		private final double odds;
+		private long stamp; // guarded by the stripe's lock
+
+		Entry(DraftState state, double odds, long stamp) {
+			this.state = state;
+			this.odds = odds;
+			this.stamp = stamp;
+		}
+
+		boolean matches(DraftState other) {
+			return state.zobrist() == other.zobrist() && state.equals(other);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -11,16 +12,33 @@ import java.util.function.ToDoubleFunction;
 import model.Edge;
 import model.Node;
 import draft.DraftSession;
+import draft.DraftState;
+import draft.DraftTally;
 import draft.Roster;
 
+/**
+ * Stateless scoring over a {@link HeroMatrix}; safe to share between search threads.
+ */
 public class Calculator {
 
 	private final HeroMatrix meta;
-	private static final Double fiftyFifty = new Double(.5);
+	private static final double fiftyFifty = .5;
+	private static final double logFiftyFifty = Math.log(fiftyFifty);
 	
 	public Calculator(HeroMatrix meta) {
 		this.meta = meta;
 	}
+	
+	public HeroMatrix getMatrix() {
+		return meta;
+	}
+	
+	/**
+	 * @return a fresh, unset {@link DraftTally} over this calculator's matrix; {@link DraftTally#reset(DraftState) reset} it before use
+	 */
+	public DraftTally tally() {
+		return new DraftTally(meta);
+	}
 
 	///////////////////////
 	//   Scoring Tools   //
@@ -30,81 +48,338 @@ public class Calculator {
 	// All scoring tools herein are simple and score AS-IS
 	// That means no predictive algorithms or roster-filling are employed
 	
-	private Double score(Hero hero, Hero adversary) {
-		return meta.get(hero, adversary, false);
+	// Probabilities are combined by geometric means, so every kernel here sums log-odds 
+	// from the matrix's precomputed tables and exponentiates (at most) once at the end.
+	// The log* variants skip even that, for callers that only rank.
+	
+	private double score(Hero hero, Hero adversary) {
+		return meta.odds(hero, adversary, false);
 	}
 	
-	public Double score(Hero hero, Roster enemyTeam) {
-		return geoMean(enemyTeam.getPicked(), enemy -> score(hero, enemy));
+	public double score(Hero hero, Roster enemyTeam) {
+		return score(hero, enemyTeam.mask());
 	}
 	
-	private Double score(Roster us, Roster them) {
-		return geoMean(us.getPicked(), h -> score(h, them));
+	public double score(Hero hero, long enemyTeam) {
+		return Math.exp(logScore(hero, enemyTeam));
+	}
+	
+	public double logScore(Hero hero, long enemyTeam) {
+		return logMean(hero, enemyTeam, false);
+	}
+	
+	private double logScore(long us, long them) {
+		if (us == HeroMask.NONE)
+			return logFiftyFifty;
+		double sum = 0.0;
+		for (long m = us; m != 0; m &= m - 1)
+			sum += logScore(HeroMask.first(m), them);
+		return sum / HeroMask.size(us);
 	}
 
-	private Double synergy(Hero hero, Hero partner) {
-		return meta.get(hero, partner, true);
+	private double synergy(Hero hero, Hero partner) {
+		return meta.odds(hero, partner, true);
 	}
 	
-	public Double synergy(Hero hero, Roster team) {
+	public double synergy(Hero hero, Roster team) {
 //		if (team.isFull())
 //			throw new IllegalArgumentException("Roster is already full");
 		
-		return geoMean(team.getPicked(), partner -> synergy(hero, partner));
+		return synergy(hero, team.mask());
 	}
 	
-	private Double synergy(Roster team) {
-		return geoMean(team.getPicked(), hero -> synergy(hero, team));
+	public double synergy(Hero hero, long team) {
+		return Math.exp(logSynergy(hero, team));
+	}
+	
+	public double logSynergy(Hero hero, long team) {
+		return logMean(hero, team, true);
+	}
+	
+	private double logSynergy(long team) {
+		if (team == HeroMask.NONE)
+			return logFiftyFifty;
+		double sum = 0.0;
+		for (long m = team; m != 0; m &= m - 1)
+			sum += logSynergy(HeroMask.first(m), team);
+		return sum / HeroMask.size(team);
 	}
 	
 	/**
 	 * @return probability that we win assuming either we win or they do
 	 */
-	private Double synergyWar(Roster us, Roster them) {
-		Double usSyn = synergy(us);
-		Double themSyn = synergy(them);
+	private double synergyWar(double usLogSynergy, double themLogSynergy) {
+		double usSyn = Math.exp(usLogSynergy);
+		double themSyn = Math.exp(themLogSynergy);
 		
 		// assuming independent probabilities blue and red, this equation gives P(blue | blue xor red)
-		return new Double((usSyn * (1 - themSyn)) 
-				/ (double) (usSyn * (1 - themSyn) + (themSyn) * (1 - usSyn)));
+		return (usSyn * (1 - themSyn)) 
+				/ (usSyn * (1 - themSyn) + (themSyn) * (1 - usSyn));
+	}
+	
+	/**
+	 * @return score for blue 
+	 * @see #scorePlusSynergy(Roster, Roster)
+	 */
+	public double scorePlusSynergy(DraftSession session) {
+		return scorePlusSynergy(session.getState());
 	}
 	
 	/**
 	 * @return score for blue 
 	 * @see #scorePlusSynergy(Roster, Roster)
 	 */
-	public Double scorePlusSynergy(DraftSession session) {
-		return scorePlusSynergy(session.getBlue(), session.getRed());
+	public double scorePlusSynergy(DraftState state) {
+		return scorePlusSynergy(state.blueMask(), state.redMask());
+	}
+	
+	public double scorePlusSynergy(Roster us, Roster them) {
+		return scorePlusSynergy(us.mask(), them.mask());
+	}
+	
+	public double scorePlusSynergy(long us, long them) {
+		if (us == HeroMask.NONE || them == HeroMask.NONE)
+			return fiftyFifty;
+		return Math.exp(logScorePlusSynergy(us, them));
+	}
+	
+	/**
+	 * @return log of {@link #scorePlusSynergy(long, long)}; orders drafts identically
+	 */
+	public double logScorePlusSynergy(long us, long them) {
+		if (us == HeroMask.NONE || them == HeroMask.NONE)
+			return logFiftyFifty;
+		
+		return logScorePlusSynergy(HeroMask.size(us), HeroMask.size(them),
+				logScore(us, them), logSynergy(us), logSynergy(them));
 	}
 	
-	 // TODO could add special weighting for a fight or a synergy
-	public Double scorePlusSynergy(Roster us, Roster them) {
-		if (us.isEmpty() || them.isEmpty())
+	/**
+	 * @return score for blue, read off the tally's running aggregates
+	 * @see #scorePlusSynergy(long, long)
+	 */
+	public double scorePlusSynergy(DraftTally tally) {
+		DraftState state = tally.getState();
+		if (state.blueMask() == HeroMask.NONE || state.redMask() == HeroMask.NONE)
 			return fiftyFifty;
+		return Math.exp(logScorePlusSynergy(tally));
+	}
+	
+	/**
+	 * @return {@link #logScorePlusSynergy(long, long)} in O(roster size)
+	 */
+	public double logScorePlusSynergy(DraftTally tally) {
+		DraftState state = tally.getState();
+		long blue = state.blueMask();
+		long red = state.redMask();
+		if (blue == HeroMask.NONE || red == HeroMask.NONE)
+			return logFiftyFifty;
 		
-		Double score = score(us, them);
-		double fights = (double) (us.size() + them.size());
+		int blueSize = HeroMask.size(blue);
+		int redSize = HeroMask.size(red);
+		double versus = 0.0;
+		double blueSynergy = 0.0;
+		for (long m = blue; m != 0; m &= m - 1) {
+			Hero hero = HeroMask.first(m);
+			versus += tally.matchupAgainst(false, hero);
+			blueSynergy += tally.synergyWith(true, hero);
+		}
+		double redSynergy = 0.0;
+		for (long m = red; m != 0; m &= m - 1)
+			redSynergy += tally.synergyWith(false, HeroMask.first(m));
+		
+		return logScorePlusSynergy(blueSize, redSize,
+				versus / (blueSize * redSize),
+				blueSynergy / (blueSize * blueSize),
+				redSynergy / (redSize * redSize));
+	}
+	
+	/**
+	 * @return {@link #logScorePlusSynergy(DraftTally)} once the given hero, from the pool, joins a team; 
+	 * 		without making the pick
+	 */
+	public double logScorePlusSynergy(DraftTally tally, Hero next, boolean forBlue) {
+		DraftState state = tally.getState();
+		long blue = state.blueMask();
+		long red = state.redMask();
+		int blueSize = HeroMask.size(blue) + (forBlue ? 1 : 0);
+		int redSize = HeroMask.size(red) + (forBlue ? 0 : 1);
+		if (blueSize == 0 || redSize == 0)
+			return logFiftyFifty;
+		
+		// the tally has the new hero's row against each roster; add its column and itself
+		double self = meta.logOdds(next, next, true);
+		double versus = forBlue ? tally.matchupAgainst(false, next) : 0.0;
+		double blueSynergy = forBlue ? tally.synergyWith(true, next) + self : 0.0;
+		for (long m = blue; m != 0; m &= m - 1) {
+			Hero hero = HeroMask.first(m);
+			versus += tally.matchupAgainst(false, hero);
+			blueSynergy += tally.synergyWith(true, hero);
+			if (forBlue)
+				blueSynergy += meta.logOdds(hero, next, true);
+			else
+				versus += meta.logOdds(hero, next, false);
+		}
+		double redSynergy = forBlue ? 0.0 : tally.synergyWith(false, next) + self;
+		for (long m = red; m != 0; m &= m - 1) {
+			Hero hero = HeroMask.first(m);
+			redSynergy += tally.synergyWith(false, hero);
+			if (!forBlue)
+				redSynergy += meta.logOdds(hero, next, true);
+		}
+		
+		return logScorePlusSynergy(blueSize, redSize,
+				versus / (blueSize * redSize),
+				blueSynergy / (blueSize * blueSize),
+				redSynergy / (redSize * redSize));
+	}
+	
+	private double logScorePlusSynergy(int usSize, int themSize, double logScore, double usLogSynergy, double themLogSynergy) {
+		 // TODO could add special weighting for a fight or a synergy
+		double fights = (double) (usSize + themSize);
 		double fightWeight = fights; // can be adjusted
 		
-		Double usSynergy = synergyWar(us, them);
-		double usPairs = (double) (us.size() * (us.size() - 1));
-		double themPairs = (double) (them.size() * (them.size() - 1));
+		double usPairs = (double) (usSize * (usSize - 1));
+		double themPairs = (double) (themSize * (themSize - 1));
 		double synergyWeight = 3*(usPairs+themPairs); // can be adjusted
 		
-		return Math.pow(((Math.pow(score, fightWeight)) * (Math.pow(usSynergy, synergyWeight))),
-				1 / ((double) (fightWeight + synergyWeight)));
+		double weighted = fightWeight * logScore;
+		if (synergyWeight > 0) // (a lone hero has no synergy to weigh, however undefined)
+			weighted += synergyWeight * Math.log(synergyWar(usLogSynergy, themLogSynergy));
+		return weighted / (fightWeight + synergyWeight);
+	}
+	
+	/**
+	 * @return the marginal score of adding a hero to our roster
+	 */
+	public double marginalScore(Hero heroForUs, Roster us, Roster them, Set<Hero> pool) {
+		return marginalScore(heroForUs, us.mask(), them.mask());
 	}
 	
 	/**
 	 * @return the marginal score of adding a hero to our roster
 	 */
-	public Double marginalScore(Hero heroForUs, Roster us, Roster them, Set<Hero> pool) {
-		Double synergy = synergy(heroForUs, us);
-		Double score = score(heroForUs, them);
-		return Math.pow(Math.pow(synergy, us.size()) * Math.pow(score, 3*them.size()) 
-				, 1 / (double) (us.size() + 3*them.size()));
+	public double marginalScore(Hero heroForUs, long us, long them) {
+		return Math.exp(logMarginalScore(heroForUs, us, them));
+	}
+	
+	/**
+	 * @return log of {@link #marginalScore(Hero, long, long)}; ranks heroes identically
+	 */
+	public double logMarginalScore(Hero heroForUs, long us, long them) {
+		// synergy with each ally weighs 1, each matchup weighs 3
+		double synergy = logSum(heroForUs, us, true);
+		double score = logSum(heroForUs, them, false);
+		int usSize = HeroMask.size(us);
+		int themSize = HeroMask.size(them);
+		return (synergy + 3*score) / (double) (usSize + 3*themSize);
+	}
+	
+	/**
+	 * @return {@link #logMarginalScore(Hero, long, long)} in O(1), for a hero joining the given team
+	 */
+	public double logMarginalScore(Hero heroForUs, DraftTally tally, boolean forBlue) {
+		DraftState state = tally.getState();
+		int usSize = HeroMask.size(forBlue ? state.blueMask() : state.redMask());
+		int themSize = HeroMask.size(forBlue ? state.redMask() : state.blueMask());
+		double synergy = tally.synergyWith(forBlue, heroForUs);
+		double score = tally.matchupAgainst(!forBlue, heroForUs);
+		return (synergy + 3*score) / (double) (usSize + 3*themSize);
 	}
 
+	//////////////////
+	//   Bounding   //
+	//////////////////
+	
+	// A partial draft bounds every draft that can complete it: the final roster sizes are fixed by the format, 
+	// and the final score only rises with the fights and blue's synergy, and falls with red's synergy. 
+	// So each sum is bounded on its own, splitting it into known (K) and unknown (U) heroes: KK exactly, 
+	// and each unknown hero by its best (or worst) case, with the knowns and with the best few of its ranking in the pool; 
+	// then only the best few unknowns count.
+	
+	/**
+	 * @return odds for blue that no completion of the draft can beat (an admissible bound for branch and bound)
+	 */
+	public double upperBound(DraftState state) {
+		return Math.exp(logBound(state, true));
+	}
+	
+	/**
+	 * @return odds for blue that no completion of the draft can fall below
+	 */
+	public double lowerBound(DraftState state) {
+		return Math.exp(logBound(state, false));
+	}
+	
+	private double logBound(DraftState state, boolean upper) {
+		long blue = state.blueMask();
+		long red = state.redMask();
+		long pool = state.poolMask();
+		int blueSize = state.getFormat().blueRoster();
+		int redSize = state.getFormat().redRoster();
+		if (blueSize == 0 || redSize == 0)
+			return logFiftyFifty;
+		int blueLeft = blueSize - HeroMask.size(blue);
+		int redLeft = redSize - HeroMask.size(red);
+		
+		// blue's best case: the best fights, the best synergy for blue, and the worst for red
+		double versus = 0.0;
+		for (long m = blue; m != 0; m &= m - 1)
+			versus += logSum(HeroMask.first(m), red, false);
+		if (redLeft > 0)
+			versus += extremeSum(pool, redLeft, upper, hero -> logColumnSum(blue, hero, false));
+		if (blueLeft > 0)
+			versus += extremeSum(pool, blueLeft, upper, hero -> logSum(hero, red, false) 
+					+ extremeRow(hero, false, redLeft, pool & ~hero.mask(), upper));
+		double blueSynergy = boundSynergy(blue, blueLeft, pool, upper);
+		double redSynergy = boundSynergy(red, redLeft, pool, !upper);
+		
+		return logScorePlusSynergy(blueSize, redSize,
+				versus / (blueSize * redSize),
+				blueSynergy / (blueSize * blueSize),
+				redSynergy / (redSize * redSize));
+	}
+	
+	/**
+	 * @return bound on the summed log-synergy over every ordered pair of the team's final roster (self pairs too)
+	 */
+	private double boundSynergy(long team, int left, long pool, boolean upper) {
+		double synergy = 0.0;
+		for (long m = team; m != 0; m &= m - 1)
+			synergy += logSum(HeroMask.first(m), team, true);
+		if (left == 0)
+			return synergy;
+		synergy += extremeSum(pool, left, upper, hero -> logSum(hero, team, true) + logColumnSum(team, hero, true) 
+				+ meta.logOdds(hero, hero, true) + extremeRow(hero, true, left - 1, pool & ~hero.mask(), upper));
+		return synergy;
+	}
+	
+	/**
+	 * @return sum of the k highest (or lowest) values over heroes in the pool
+	 */
+	private double extremeSum(long pool, int k, boolean highest, ToDoubleFunction<Hero> value) {
+		double[] values = new double[HeroMask.size(pool)];
+		int n = 0;
+		for (long m = pool; m != 0; m &= m - 1)
+			values[n++] = value.applyAsDouble(HeroMask.first(m));
+		Arrays.sort(values);
+		double sum = 0.0;
+		for (int i = 0; i < k && i < n; i++)
+			sum += highest ? values[n - 1 - i] : values[i];
+		return sum;
+	}
+	
+	/**
+	 * @return sum of the hero's k highest (or lowest) log-odds with (or against) heroes of the pool, read off its ranking
+	 */
+	private double extremeRow(Hero hero, boolean withOrAgainst, int k, long pool, boolean highest) {
+		Ranking ranking = meta.ranking(hero, withOrAgainst);
+		double sum = 0.0;
+		for (Hero other : highest ? ranking.top(k, pool) : ranking.bottom(k, pool))
+			sum += meta.logOdds(hero, other, withOrAgainst);
+		return sum;
+	}
+	
 	/////////////////////////
 	//   Filling Rosters   //
 	/////////////////////////
@@ -119,7 +394,7 @@ public class Calculator {
 	}
 	
 	@SuppressWarnings("unused")
-	private Double scoreAndFill(Hero hero, Roster enemyTeam, Set<Hero> pool) {
+	private double scoreAndFill(Hero hero, Roster enemyTeam, Set<Hero> pool) {
 		return score(hero, fillForCountering(hero, enemyTeam.clone(), pool));
 	}
 	
@@ -129,7 +404,7 @@ public class Calculator {
 	 * does not modify given object instances
 	 */
 	@SuppressWarnings("unused")
-	private Double scoreAndFill(Roster us, Roster them, Set<Hero> pool) {
+	private double scoreAndFill(Roster us, Roster them, Set<Hero> pool) {
 		// fill our roster first
 		Roster futureAllies = us;
 		if (!us.isFull()) {
@@ -160,23 +435,15 @@ public class Calculator {
 	///////////////////////
 	
 	/**
-	 * @return list of N best counters to a hero, decreasing in strength
+	 * @return list of N best counters to a hero, decreasing in strength 
+	 * (i.e. increasing in the hero's odds against them, which are the scores)
 	 */
 	private List<Pick> bestCounters(Hero hero, int nBest, Set<Hero> pool) {
-		// list ordered decreasing by hero's strength against other heroes
-		List<Pick> counters = meta.get(hero, false);
-		
-		// reverse to prioritize other heroes' strength against the given hero
-		Collections.reverse(counters.subList(0, nBest));
-		
-		// remove heroes not in the current pool
-		Set<Pick> toRemove = new HashSet<>();
-		for (Pick pick : counters) {
-			if (!pool.contains(pick.getCandidate()))
-				toRemove.add(pick);
-		}
-		counters.removeAll(toRemove);
-		
+		// the hero's row is ordered decreasing by hero's strength against other heroes,
+		// so walk it from the bottom to prioritize other heroes' strength against the given hero
+		List<Pick> counters = new ArrayList<>(nBest);
+		for (Hero counter : meta.ranking(hero, false).bottom(nBest, HeroMask.of(pool)))
+			counters.add(new Pick(counter, score(hero, counter)));
 		return counters;
 	}
 	
@@ -210,14 +477,13 @@ public class Calculator {
 		return options;
 	}
 	
+	/**
+	 * @return list of N best partners for a hero, decreasing in synergy
+	 */
 	private List<Pick> bestPartners(Hero hero, int nBest, Set<Hero> pool) {
-		List<Pick> partners = meta.get(hero, true).subList(0, nBest);
-		Set<Pick> toRemove = new HashSet<>();
-		for (Pick pick : partners) {
-			if (!pool.contains(pick.getCandidate()))
-				toRemove.add(pick);
-		}
-		partners.removeAll(toRemove);
+		List<Pick> partners = new ArrayList<>(nBest);
+		for (Hero partner : meta.ranking(hero, true).top(nBest, HeroMask.of(pool)))
+			partners.add(new Pick(partner, synergy(hero, partner)));
 		return partners;
 	}
 	
@@ -331,7 +597,7 @@ public class Calculator {
 	 * @return average score, or 0.5 if given an empty list
 	 */
 	@SuppressWarnings("unused")
-	private Double arithMean(Collection<Hero> heroes, ToDoubleFunction<Hero> scorer) {
+	private double arithMean(Collection<Hero> heroes, ToDoubleFunction<Hero> scorer) {
 		if (heroes.size() < 1)
 			return fiftyFifty;
 		
@@ -342,29 +608,44 @@ public class Calculator {
 	}
 	
 	/**
-	 * Geometric Mean
+	 * Geometric Mean, in log space
 	 * <p>
 	 * This averaging method should be chosen for averaging probabilities
 	 * 
-	 * @param heroes to be measured
-	 * @param scorer a means to measure each hero
-	 * @return geometric average of the scores, or 0.5 if given an empty list
+	 * @param hero to be measured
+	 * @param others to be measured against
+	 * @return log of the geometric average of the hero's odds with or against the others, or log(0.5) if there are none
 	 */
-	private Double geoMean(Collection<Hero> heroes, ToDoubleFunction<Hero> scorer) {
-		if (heroes.size() < 1)
-			return fiftyFifty;
-		
-		double score = 1.0;
-		for (Hero hero : heroes)
-			score *= scorer.applyAsDouble(hero);
-		return Math.pow(score, (1 / (double) heroes.size()));
+	private double logMean(Hero hero, long others, boolean withOrAgainst) {
+		if (others == HeroMask.NONE)
+			return logFiftyFifty;
+		return logSum(hero, others, withOrAgainst) / HeroMask.size(others);
+	}
+	
+	private double logSum(Hero hero, long others, boolean withOrAgainst) {
+		// a scan along the hero's row: mask bits are the column ordinals
+		int row = meta.row(hero, withOrAgainst);
+		double sum = 0.0;
+		for (long m = others; m != 0; m &= m - 1)
+			sum += meta.logOddsAt(row + Long.numberOfTrailingZeros(m));
+		return sum;
+	}
+	
+	/**
+	 * @return the other way around from {@link #logSum}: each of the others' log-odds with (or against) the hero
+	 */
+	private double logColumnSum(long others, Hero hero, boolean withOrAgainst) {
+		double sum = 0.0;
+		for (long m = others; m != 0; m &= m - 1)
+			sum += meta.logOdds(HeroMask.first(m), hero, withOrAgainst);
+		return sum;
 	}
 	
 	/**
 	 * I plan to use this later for optimization purposes (passing around data points)
 	 */
 	@SuppressWarnings("unused")
-	private Double geoMean(Collection<Double> scores) {
+	private double geoMean(Collection<Double> scores) {
 		if (scores.size() < 1)
 			return fiftyFifty;
 		
@@ -1,5 +1,9 @@
 package data;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum Hero {
 
 	ADAGIO("Adagio", "*Adagio*"),
@@ -34,6 +38,17 @@ public enum Hero {
 	TAKA("Taka", "*Sayoc*"),
 	VOX("Vox", "*Vox*");
 	
+	private static final Hero[] VALUES = values();
+	// for parsing without a scan; names are matched ignoring case
+	private static final Map<String, Hero> BY_NAME = new HashMap<>();
+	private static final Map<String, Hero> BY_CODE = new HashMap<>();
+	static {
+		for (Hero hero : VALUES) {
+			BY_NAME.put(hero.name.toLowerCase(Locale.ROOT), hero);
+			BY_CODE.put(hero.code, hero);
+		}
+	}
+	
 	private final String name;
 	private final String code;
 	
@@ -50,19 +65,31 @@ public enum Hero {
 		return code;
 	}
 	
+	/**
+	 * @return this hero's single bit within a {@link HeroMask}
+	 */
+	public long mask() {
+		return 1L << ordinal();
+	}
+	
+	/**
+	 * Shared lookup; avoids the array copy made by {@link #values()}
+	 */
+	public static Hero fromOrdinal(int ordinal) {
+		return VALUES[ordinal];
+	}
+	
 	public static Hero fromCode(String code) {
-		for (Hero h : Hero.values()) {
-			if (h.code.equals(code))
-				return h;
-		}
-		throw new IllegalArgumentException("Not a hero code: " + code);
+		Hero hero = BY_CODE.get(code);
+		if (hero == null)
+			throw new IllegalArgumentException("Not a hero code: " + code);
+		return hero;
 	}
 	
 	public static Hero fromName(String name) {
-		for (Hero h : Hero.values()) {
-			if (h.name.equalsIgnoreCase(name))
-				return h;
-		}
-		throw new IllegalArgumentException("Not a hero name: " + name);
+		Hero hero = name == null ? null : BY_NAME.get(name.toLowerCase(Locale.ROOT));
+		if (hero == null)
+			throw new IllegalArgumentException("Not a hero name: " + name);
+		return hero;
 	}
 }
@@ -0,0 +1,85 @@
+package data;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Static helpers for sets of heroes packed into a single {@code long}, one bit per {@link Hero#ordinal()}.
+ * <p>
+ * Iterate a mask without allocating:
+ * <pre>
+ * for (long m = mask; m != 0; m &amp;= m - 1) {
+ *     Hero hero = HeroMask.first(m);
+ *     ...
+ * }
+ * </pre>
+ */
+public final class HeroMask {
+
+	public static final long NONE = 0L;
+	public static final long ALL = (1L << Hero.values().length) - 1;
+
+	private HeroMask() {}
+
+	public static long of(Iterable<Hero> heroes) {
+		long mask = NONE;
+		for (Hero hero : heroes)
+			mask |= hero.mask();
+		return mask;
+	}
+
+	public static boolean contains(long mask, Hero hero) {
+		return (mask & hero.mask()) != 0;
+	}
+
+	public static int size(long mask) {
+		return Long.bitCount(mask);
+	}
+
+	/**
+	 * @return the hero with the lowest ordinal in the mask
+	 */
+	public static Hero first(long mask) {
+		if (mask == NONE)
+			throw new NoSuchElementException("Empty hero mask");
+		return Hero.fromOrdinal(Long.numberOfTrailingZeros(mask));
+	}
+
+	/**
+	 * @return a read-only {@code Set} view of the given mask, iterating in ordinal order
+	 */
+	public static Set<Hero> asSet(final long mask) {
+		return new AbstractSet<Hero>() {
+			@Override
+			public Iterator<Hero> iterator() {
+				return new Iterator<Hero>() {
+					private long remaining = mask;
+
+					@Override
+					public boolean hasNext() {
+						return remaining != NONE;
+					}
+
+					@Override
+					public Hero next() {
+						Hero hero = first(remaining);
+						remaining &= remaining - 1;
+						return hero;
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof Hero && HeroMask.contains(mask, (Hero) o);
+			}
+
+			@Override
+			public int size() {
+				return HeroMask.size(mask);
+			}
+		};
+	}
+}
@@ -1,67 +1,196 @@
 package data;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Pairwise win rates between heroes.
+ * <p>
+ * Not synchronized: fill it on one thread, then publish it safely (e.g. through a final field,
+ * or by handing it to an executor). After that, any number of threads may read it concurrently.
+ */
 public class HeroMatrix {
 
-	// for direct access by hero
-	private HashMap<Hero, HashMap<Hero,Double>> versus;
-	private HashMap<Hero, HashMap<Hero,Double>> synergy;
-	// for a pre-sorted list // TODO write protect
-	private HashMap<Hero, List<Pick>> versusPicks;
-	private HashMap<Hero, List<Pick>> synergyPicks;
-	
+	private static final int HEROES = Hero.values().length;
+	private static final int TABLE = HEROES * HEROES;
+
+	// for direct access by hero: one flat row-major table, versus first and synergy right after it,
+	// indexed by ordinal (see #index); pairs never put are NaN
+	private final double[] odds;
+	// natural logs of the above, same layout, so that geometric means become sums
+	private final double[] logOdds;
+	// pre-sorted rows, built once on first use after loading (versus rows first, then synergy, by ordinal)
+	private volatile Ranking[] rankings;
+	// hash of every entry, computed on first use after loading; 0 until then
+	private volatile long fingerprint;
+	// count of changes; cheaper than the fingerprint to check on every use
+	private volatile long version;
+
 	public HeroMatrix() {
-		versus = new HashMap<>();
-		synergy = new HashMap<>();
-		versusPicks = new HashMap<>();
-		synergyPicks = new HashMap<>();
-		
-		for (Hero h : Hero.values()) {
-			versus.put(h, new HashMap<Hero,Double>());
-			synergy.put(h, new HashMap<Hero,Double>());
-			versusPicks.put(h, new ArrayList<>());
-			synergyPicks.put(h,  new ArrayList<>());
+		odds = new double[2 * TABLE];
+		logOdds = new double[2 * TABLE];
+		Arrays.fill(odds, Double.NaN);
+		Arrays.fill(logOdds, Double.NaN);
+	}
+
+	/**
+	 * A matrix from compiled tables (see {@link MatrixLoader#loadCompiled(java.nio.file.Path)}), taken as they are
+	 *
+	 * @param odds every entry, in this class's layout
+	 * @param logOdds their logs, or {@code null} to compute them
+	 * @param rankings the sorted rows, or {@code null} to sort them
+	 */
+	HeroMatrix(double[] odds, double[] logOdds, byte[][] rankings) {
+		if (odds.length != 2 * TABLE || (logOdds != null && logOdds.length != 2 * TABLE))
+			throw new IllegalArgumentException("Expected " + 2 * TABLE + " entries: " + odds.length);
+		this.odds = odds;
+		if (logOdds == null) {
+			logOdds = new double[2 * TABLE];
+			for (int i = 0; i < logOdds.length; i++)
+				logOdds[i] = Math.log(odds[i]);
+		}
+		this.logOdds = logOdds;
+		if (rankings != null) {
+			Ranking[] sorted = new Ranking[2 * HEROES];
+			for (int r = 0; r < sorted.length; r++)
+				sorted[r] = new Ranking(rankings[r]);
+			this.rankings = sorted;
 		}
+		this.version = 1;
 	}
-	
+
 	public void put(Hero one, Hero other, double odds, boolean withOrAgainst) {
-		if (withOrAgainst) {
-			synergy.get(one).put(other, odds);
-			List<Pick> list = synergyPicks.get(one);
-			list.add(new Pick(other, odds));
-			if (list.size() == Hero.values().length) {
-				// assuming proper use, time to lock up
-				Collections.sort(list); // ends up being > O(N^2); find a smarter way
-				synergyPicks.put(one, Collections.unmodifiableList(list));
+		int index = index(one, other, withOrAgainst);
+		this.odds[index] = odds;
+		this.logOdds[index] = Math.log(odds);
+		this.rankings = null; // stale
+		this.fingerprint = 0L;
+		this.version++; // (single writer)
+	}
+
+	public Double get(Hero one, Hero other, boolean withOrAgainst) {
+		return odds(one, other, withOrAgainst);
+	}
+
+	/**
+	 * @return {@link #get(Hero, Hero, boolean)}, without boxing
+	 */
+	public double odds(Hero one, Hero other, boolean withOrAgainst) {
+		return odds[index(one, other, withOrAgainst)];
+	}
+
+	/**
+	 * @return natural log of {@link #get(Hero, Hero, boolean)}, without boxing
+	 */
+	public double logOdds(Hero one, Hero other, boolean withOrAgainst) {
+		return logOdds[index(one, other, withOrAgainst)];
+	}
+
+	/**
+	 * @return read-only view of the hero's row, highest odds first
+	 * @see #ranking(Hero, boolean)
+	 */
+	public List<Pick> get(Hero hero, boolean withOrAgainst) {
+		Ranking ranking = ranking(hero, withOrAgainst);
+		int row = row(hero, withOrAgainst);
+		return new AbstractList<Pick>() {
+			@Override
+			public Pick get(int rank) {
+				Hero other = ranking.get(rank);
+				return new Pick(other, odds[row + other.ordinal()]);
 			}
-		}
-		else {
-			versus.get(one).put(other, odds);
-			List<Pick> list = versusPicks.get(one);
-			list.add(new Pick(other, odds));
-			if (list.size() == Hero.values().length) {
-				// assuming proper use, time to lock up
-				Collections.sort(list); // ends up being > O(N^2); find a smarter way
-				versusPicks.put(one, Collections.unmodifiableList(list));
+
+			@Override
+			public int size() {
+				return ranking.size();
 			}
+		};
+	}
+
+	/**
+	 * @return the hero's row as a sorted index of heroes, highest odds first
+	 */
+	public Ranking ranking(Hero hero, boolean withOrAgainst) {
+		Ranking[] rankings = this.rankings;
+		if (rankings == null)
+			rankings = sortRows();
+		return rankings[(withOrAgainst ? HEROES : 0) + hero.ordinal()];
+	}
+
+	/**
+	 * @return number of changes made so far; anything cached from this matrix is stale once it moves on
+	 */
+	public long version() {
+		return version;
+	}
+
+	/**
+	 * @return a hash of every win rate, so that anything derived from this matrix 
+	 * 		(e.g. a stored opening book) can tell whether it still applies
+	 */
+	public long fingerprint() {
+		long fingerprint = this.fingerprint;
+		if (fingerprint == 0L) {
+			fingerprint = 1125899906842597L;
+			for (double entry : odds)
+				fingerprint = 31 * fingerprint + Double.doubleToLongBits(entry);
+			if (fingerprint == 0L)
+				fingerprint = 1L; // (0 means not yet computed)
+			this.fingerprint = fingerprint;
 		}
+		return fingerprint;
 	}
-	
-	public Double get(Hero one, Hero other, boolean withOrAgainst) {
-		if (withOrAgainst)
-			return synergy.get(one).get(other);
-		else
-			return versus.get(one).get(other);
+
+	/**
+	 * Sorts every row into a {@link Ranking}, once per load. 
+	 * Loaders call this when they finish; otherwise it happens on first use.
+	 */
+	synchronized Ranking[] sortRows() {
+		if (rankings != null)
+			return rankings;
+		Ranking[] sorted = new Ranking[2 * HEROES];
+		for (int r = 0; r < sorted.length; r++) {
+			int row = r * HEROES; // rows of both tables are contiguous
+			Integer[] order = new Integer[HEROES];
+			for (int i = 0; i < HEROES; i++)
+				order[i] = i;
+			Arrays.sort(order, (a, b) -> Double.compare(odds[row + b], odds[row + a]));
+			byte[] ordinals = new byte[HEROES];
+			for (int i = 0; i < HEROES; i++)
+				ordinals[i] = order[i].byteValue();
+			sorted[r] = new Ranking(ordinals);
+		}
+		rankings = sorted;
+		return sorted;
 	}
-	
-	public List<Pick> get(Hero hero, boolean withOrAgainst) {
-		if (withOrAgainst)
-			return new ArrayList<>(synergyPicks.get(hero));
-		else
-			return new ArrayList<>(versusPicks.get(hero));
+
+	/**
+	 * @return index of the first entry of a hero's row; add an opponent's or partner's ordinal to reach them
+	 */
+	int row(Hero one, boolean withOrAgainst) {
+		return (withOrAgainst ? TABLE : 0) + one.ordinal() * HEROES;
+	}
+
+	/**
+	 * For row scans: {@code logOddsAt(row(hero, w) + other.ordinal())}
+	 */
+	double logOddsAt(int index) {
+		return logOdds[index];
+	}
+
+	/**
+	 * @return entries in all, for {@link #oddsAt(int)} and {@link #logOddsAt(int)}
+	 */
+	static int size() {
+		return 2 * TABLE;
+	}
+
+	double oddsAt(int index) {
+		return odds[index];
+	}
+
+	private int index(Hero one, Hero other, boolean withOrAgainst) {
+		return row(one, withOrAgainst) + other.ordinal();
 	}
 }
@@ -1,152 +1,292 @@
 package data;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 public class MatrixLoader {
 
+	private static final int HEROES = Hero.values().length;
+	// WEIGHTING WIN-RATES: added to every count, pulling rarely seen pairs toward even odds
+	private static final int VERSUS_WEIGHT = 10;
+	private static final int WINS_WITH_WEIGHT = 5;
+	private static final int PLAYS_WITH_WEIGHT = 10;
+	private static final int MISSING = -1;
+
+	private static final int MAGIC = 0x56474D58; // "VGMX"
+	private static final int FILE_VERSION = 1;
+	private static final int WITH_LOGS = 1;
+	private static final int WITH_RANKINGS = 2;
+
 	/**
-	 * @param vsXmlFile
-	 * @param synergyXmlFile
-	 * @return
-	 * @throws ParserConfigurationException
-	 * @throws SAXException
-	 * @throws IOException
+	 * Streams both files at once (the versus one on the common pool) straight into tables of counts, 
+	 * checking that every pair is there, then turns the counts into win rates. 
+	 * Each file is looked up as a resource next to this class first, then as a path.
+	 * 
+	 * @throws IllegalArgumentException if a file names an unknown hero, or lacks or repeats any pair
+	 * @throws XMLStreamException if a file is not well-formed XML
 	 */
-	public static HeroMatrix load(Path vsXmlFile, Path synergyXmlFile) throws ParserConfigurationException, SAXException, IOException {
-		
-//		InputStream vsFile = new FileInputStream(vsXmlFile.toString());
-		InputStream vsFile = MatrixLoader.class.getResourceAsStream(vsXmlFile.toString());
-//		InputStream synergyFile = new FileInputStream(synergyXmlFile.toString());
-		InputStream synergyFile = MatrixLoader.class.getResourceAsStream(synergyXmlFile.toString());
-		
-//		if (!vsXmlFile.exists())
-//			throw new IllegalArgumentException("File does not exist: " + vsFile);
-//		if (!synergyXmlFile.exists())
-//			throw new IllegalArgumentException("File does not exist: " + synergyFile);
-
-		HashMap<Hero, HashMap<Hero, Integer>> vsMap = new HashMap<>();
-		HashMap<Hero, HashMap<Hero, Integer>> synMap = new HashMap<>();
-		HashMap<Hero, HashMap<Hero, Integer>> withMap = new HashMap<>();
-		for (Hero h : Hero.values()) {
-			vsMap.put(h, new HashMap<Hero,Integer>());
-			synMap.put(h, new HashMap<Hero,Integer>());
-			withMap.put(h, new HashMap<Hero,Integer>());
-		}
+	public static HeroMatrix load(Path vsXmlFile, Path synergyXmlFile) throws IOException, XMLStreamException {
+		System.out.println("Loading data from: " + vsXmlFile.getFileName() + ", " + synergyXmlFile.getFileName());
 
-		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-		DocumentBuilder dBuilder2 = dbFactory.newDocumentBuilder();
-		Document vsDoc = dBuilder.parse(vsFile);
-		Document synDoc = dBuilder2.parse(synergyFile);
+		// raw counts by [hero][other] ordinal, weighted
+		int[][] vsCounts = counts();
+		int[][] synCounts = counts();
+		int[][] withCounts = counts();
 
-		// System.out.println("Root element :" + doc.getDocumentElement().getNodeName());
+		FutureTask<Void> versus = new FutureTask<>(() -> {
+			parse(vsXmlFile, new String[] {"beat"}, new int[][][] {vsCounts}, new int[] {VERSUS_WEIGHT});
+			return null;
+		});
+		ForkJoinPool.commonPool().execute(versus); // (a fork-join task would wrap what it throws)
+		parse(synergyXmlFile, new String[] {"winswith", "playswith"}, 
+				new int[][][] {synCounts, withCounts}, new int[] {WINS_WITH_WEIGHT, PLAYS_WITH_WEIGHT});
+		join(versus);
 
-		NodeList nList = vsDoc.getElementsByTagName("ROW");
-		NodeList nList2 = synDoc.getElementsByTagName("ROW");
+		// convert values into ratio matrix
+		HeroMatrix matrix = new HeroMatrix();
+		for (Hero hero : Hero.values()) {
+			for (Hero other : Hero.values()) {
+				double wins = vsCounts[hero.ordinal()][other.ordinal()];
+				double losses = vsCounts[other.ordinal()][hero.ordinal()];
+				double winsWith = synCounts[hero.ordinal()][other.ordinal()];
+				double playsWith = withCounts[hero.ordinal()][other.ordinal()];
+				matrix.put(hero, other, wins/(wins+losses), false);
+				matrix.put(hero, other, winsWith/(winsWith+playsWith), true);
+			}
+		}
+		matrix.sortRows();
+		return matrix;
+	}
 
-		System.out.println("Loading data from: " + vsXmlFile.getFileName() + ", " + synergyXmlFile.getFileName());
+	private static int[][] counts() {
+		int[][] counts = new int[HEROES][HEROES];
+		for (int[] row : counts)
+			Arrays.fill(row, MISSING);
+		return counts;
+	}
+
+	/**
+	 * Reads one file of {@code <ROW><heroName>...</heroName><beatOther>count</beatOther>...</ROW>} rows 
+	 * (a count of {@code NULL} is 0) in a single streaming pass, into the table for each column prefix
+	 */
+	private static void parse(Path file, String[] prefixes, int[][][] tables, int[] weights) 
+			throws IOException, XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false); // (nor any entities they would bring in)
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		int filled = 0;
+		try (InputStream in = open(file)) {
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			try {
+				Hero hero = null;
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT)
+						continue;
+					String columnName = reader.getLocalName();
+					if (columnName.equals("ROW")) {
+						hero = null;
+					} else if (columnName.equals("heroName")) {
+						hero = Hero.fromName(reader.getElementText().trim());
+					} else {
+						for (int t = 0; t < prefixes.length; t++) {
+							if (!columnName.startsWith(prefixes[t]))
+								continue;
+							if (hero == null)
+								throw new IllegalArgumentException(file + ": " + columnName + " outside a hero's row");
+							Hero other = Hero.fromName(columnName.substring(prefixes[t].length()));
+							String textContent = reader.getElementText().trim();
+							int value = textContent.equals("NULL") ? 0 : Integer.parseInt(textContent);
+							int[] row = tables[t][hero.ordinal()];
+							if (row[other.ordinal()] != MISSING)
+								throw new IllegalArgumentException(file + ": " + columnName + " twice for " + hero.getName());
+							row[other.ordinal()] = value + weights[t];
+							filled++;
+							break;
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		
+		// every pair was read once at most, so only a short count means one is missing
+		if (filled < tables.length * HEROES * HEROES)
+			for (int t = 0; t < tables.length; t++)
+				for (Hero hero : Hero.values())
+					for (Hero other : Hero.values())
+						if (tables[t][hero.ordinal()][other.ordinal()] == MISSING)
+							throw new IllegalArgumentException(file + ": no " + prefixes[t] + other.getName() 
+									+ " for " + hero.getName());
+	}
 
-		for (int i = 0; i < nList.getLength(); i++) {
+	/**
+	 * @return the resource by that name next to this class, where the matrices have always been shipped; 
+	 * 		failing that, the file
+	 */
+	private static InputStream open(Path file) throws IOException {
+		InputStream resource = MatrixLoader.class.getResourceAsStream(file.toString());
+		return resource != null ? resource : Files.newInputStream(file);
+	}
 
-			Node rowNode = nList.item(i);
+	/**
+	 * Waits for a parse on another thread, rethrowing whatever it failed with
+	 */
+	private static void join(FutureTask<Void> parse) throws IOException, XMLStreamException {
+		try {
+			parse.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while loading");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof XMLStreamException)
+				throw (XMLStreamException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
 
-			// System.out.println("\nNode: " + rowNode.getNodeName());
+	////////////////
+	//   Binary   //
+	////////////////
 
-			if (rowNode.getNodeType() == Node.ELEMENT_NODE) {
+	// header: magic, file version, hero count, flags (which optional tables follow), fingerprint of the odds;
+	// then the hero names in ordinal order, zero padding to a multiple of 8 bytes, and the tables, 
+	// each in HeroMatrix's layout (versus rows, then synergy rows): odds, logs (optional), 
+	// and the rankings as a byte per ordinal (optional)
 
-				Element eElement = (Element) rowNode;
+	/**
+	 * Writes the matrix in the compiled format {@link #loadCompiled(Path)} reads, 
+	 * for every JVM that loads it to copy into its own heap
+	 *
+	 * @param indexes whether to include the logs and rankings, so that loading need not compute them
+	 */
+	public static void compile(HeroMatrix matrix, Path file, boolean indexes) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeInt(HEROES);
+			out.writeInt(indexes ? WITH_LOGS | WITH_RANKINGS : 0);
+			out.writeLong(matrix.fingerprint());
+			for (Hero hero : Hero.values())
+				out.writeUTF(hero.getName());
+			while (out.size() % Double.BYTES != 0)
+				out.writeByte(0);
 
-				NodeList elements = eElement.getElementsByTagName("*");
-				String heroName = elements.item(0).getTextContent();
-				Hero hero = Hero.fromName(heroName);
-				// System.out.println("Current Hero: " + heroName);
-				for (int j=0; j<elements.getLength(); j++) {
-					Node column = elements.item(j);
-					String columnName = column.getNodeName();
-					if (columnName.startsWith("beat")) {
-						Hero opponent = Hero.fromName(columnName.substring(4));
-						String textContent = column.getTextContent();
-						int value = textContent.equals("NULL") ? 0 : Integer.parseInt(textContent);;
-						// System.out.println(opponent + ":\t" + value);
-						// WEIGHTING WIN-RATES:
-						value += 10;
-						vsMap.get(hero).put(opponent, value);
+			for (int i = 0; i < HeroMatrix.size(); i++)
+				out.writeDouble(matrix.oddsAt(i));
+			if (indexes) {
+				for (int i = 0; i < HeroMatrix.size(); i++)
+					out.writeDouble(matrix.logOddsAt(i));
+				for (boolean withOrAgainst : new boolean[] {false, true})
+					for (Hero hero : Hero.values()) {
+						Ranking ranking = matrix.ranking(hero, withOrAgainst);
+						for (int rank = 0; rank < ranking.size(); rank++)
+							out.writeByte(ranking.get(rank).ordinal());
 					}
-				}
-
 			}
 		}
-		
-		for (int i = 0; i < nList2.getLength(); i++) {
-
-			Node rowNode = nList2.item(i);
-
-			// System.out.println("\nNode: " + rowNode.getNodeName());
-
-			if (rowNode.getNodeType() == Node.ELEMENT_NODE) {
-
-				Element eElement = (Element) rowNode;
-
-				NodeList elements = eElement.getElementsByTagName("*");
-				String heroName = elements.item(0).getTextContent();
-				Hero hero = Hero.fromName(heroName);
-//				 System.out.println("Current Hero: " + heroName);
-				for (int j=0; j<elements.getLength(); j++) {
-					Node column = elements.item(j);
-					String columnName = column.getNodeName();
-					if (columnName.startsWith("winswith")) {
-						Hero partner = Hero.fromName(columnName.substring(8));
-						String textContent = column.getTextContent();
-						int value = textContent.equals("NULL") ? 0 : Integer.parseInt(textContent);
-//						 System.out.println(partner + " wins:\t" + value);
-						// WEIGHTING WIN-RATES:
-						value += 5;
-						synMap.get(hero).put(partner, value);
-					} else if (columnName.startsWith("playswith")) {
-						Hero partner = Hero.fromName(columnName.substring(9));
-						String textContent = column.getTextContent();
-						int value = textContent.equals("NULL") ? 0 : Integer.parseInt(textContent);
-//						 System.out.println(partner + " plays:\t" + value);
-						// WEIGHTING WIN-RATES:
-						value += 10;
-						withMap.get(hero).put(partner, value);
-					}
-				}
+	}
 
+	/**
+	 * Maps a file written by {@link #compile(HeroMatrix, Path, boolean)} into memory and copies its tables out in bulk: 
+	 * nothing is parsed or, if it holds the indexes, computed. The copy is this JVM's own, on its heap; 
+	 * only the file's pages, in the OS's cache, are shared with other processes reading it 
+	 * (so that the next to start up reads them from memory rather than disk).
+	 *
+	 * @throws IOException also if the file is not a compiled matrix of this version, is for other heroes, or is corrupt
+	 */
+	public static HeroMatrix loadCompiled(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // (valid once closed too)
+			if (in.getInt() != MAGIC)
+				throw new IOException("Not a compiled matrix: " + file);
+			int version = in.getInt();
+			if (version != FILE_VERSION)
+				throw new IOException("Unsupported compiled matrix version " + version + ": " + file);
+			int heroes = in.getInt();
+			int flags = in.getInt();
+			long fingerprint = in.getLong();
+			for (int i = 0; i < heroes; i++) {
+				byte[] name = new byte[in.getShort() & 0xFFFF];
+				in.get(name);
+				if (i >= HEROES || !Hero.fromOrdinal(i).getName().equals(new String(name, StandardCharsets.UTF_8)))
+					throw new IOException("Compiled matrix is for other heroes; recompile it: " + file);
 			}
-		}
+			if (heroes != HEROES)
+				throw new IOException("Compiled matrix is for other heroes; recompile it: " + file);
+			in.position((in.position() + Double.BYTES - 1) / Double.BYTES * Double.BYTES);
 
-		// convert values into ratio matrix
-		HeroMatrix matrix = new HeroMatrix();
-		for (Hero hero : Hero.values()) {
-			for (Hero other : Hero.values()) {
-				Double wins = new Double(vsMap.get(hero).get(other));
-				Double losses = new Double(vsMap.get(other).get(hero));
-				Double winsWith = new Double(synMap.get(hero).get(other));
-				Double playsWith = new Double(withMap.get(hero).get(other));
-				matrix.put(hero, other, wins/((double) wins+losses), false);
-				matrix.put(hero, other, winsWith/((double) winsWith+playsWith), true);
+			double[] odds = new double[HeroMatrix.size()];
+			in.asDoubleBuffer().get(odds);
+			in.position(in.position() + odds.length * Double.BYTES);
+			double[] logOdds = null;
+			if ((flags & WITH_LOGS) != 0) {
+				logOdds = new double[HeroMatrix.size()];
+				in.asDoubleBuffer().get(logOdds);
+				in.position(in.position() + logOdds.length * Double.BYTES);
 			}
+			byte[][] rankings = null;
+			if ((flags & WITH_RANKINGS) != 0) {
+				rankings = new byte[2 * HEROES][HEROES];
+				for (byte[] ranking : rankings) {
+					in.get(ranking);
+					long seen = 0;
+					for (byte ordinal : ranking)
+						seen |= ordinal >= 0 && ordinal < HEROES ? 1L << ordinal : 0;
+					if (seen != HeroMask.ALL)
+						throw new IOException("Corrupt compiled matrix: a ranking is not of every hero: " + file);
+				}
+			}
+
+			HeroMatrix matrix = new HeroMatrix(odds, logOdds, rankings);
+			if (matrix.fingerprint() != fingerprint)
+				throw new IOException("Corrupt compiled matrix: fingerprint does not match: " + file);
+			return matrix;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Corrupt compiled matrix: " + file, e);
 		}
-		return matrix;
 	}
 
 	public static HeroMatrix loadRandom() {
+		return loadRandom(new Random());
+	}
+
+	/**
+	 * @return the same simulated data for the same seed, e.g. for benchmarks
+	 */
+	public static HeroMatrix loadRandom(long seed) {
+		return loadRandom(new Random(seed));
+	}
+
+	private static HeroMatrix loadRandom(Random rand) {
 		HeroMatrix matrix = new HeroMatrix();
 
 		// generate random win rates
@@ -155,7 +295,6 @@ public class MatrixLoader {
 		// (y)   (z)   (.5) etc...
 		double standardDeviation = .15;
 		ArrayList<Hero> axis2 = new ArrayList<>();
-		Random rand = new Random();
 		for (Hero one : Hero.values()) {
 			for (Hero two : axis2) {
 				double score = rand.nextGaussian();
@@ -179,6 +318,7 @@ public class MatrixLoader {
 			matrix.put(one, one, .5, true);
 			axis2.add(one);
 		}
+		matrix.sortRows();
 		return matrix;
 	}
 }
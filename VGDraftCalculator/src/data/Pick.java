@@ -3,25 +3,25 @@ package data;
 public class Pick implements Comparable<Pick> {
 
 	private final Hero candidate;
-	private final Double score;
+	private final double score;
 	
 	public Pick(Hero candidate, double score) {
 		this.candidate = candidate;
-		this.score = new Double(score);
+		this.score = score;
 	}
 	
 	public Hero getCandidate() {
 		return candidate;
 	}
 	
-	public Double getScore() {
+	public double getScore() {
 		return score;
 	}
 	
 	@Override
 	public int compareTo(Pick o) {
 		// "higher" scores come "first" -> (.70, .65, .55, ...)
-		return o.score.compareTo(score);
+		return Double.compare(o.score, score);
 	}
 	
 	/**
@@ -30,7 +30,7 @@ public class Pick implements Comparable<Pick> {
 	public Pick blend(Pick other) {
 		if (this.candidate != other.candidate)
 			throw new IllegalArgumentException("What does it mean to blend scores with a different Hero?");
-		return new Pick(candidate, Math.pow((this.score * other.score), .5));
+		return new Pick(candidate, Math.sqrt(this.score * other.score));
 	}
 
 	@Override
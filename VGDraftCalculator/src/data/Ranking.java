@@ -0,0 +1,110 @@
+package data;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * One hero's matrix row as a read-only index: every hero, ordered from the one this hero
+ * has the best odds with (or against) to the one it has the worst.
+ * <p>
+ * Built once by {@link HeroMatrix}. Callers walk it filtered by a pool {@link HeroMask}, lazily and without copying.
+ */
+public final class Ranking {
+
+	private final byte[] ordinals;
+
+	Ranking(byte[] ordinals) {
+		this.ordinals = ordinals;
+	}
+
+	public int size() {
+		return ordinals.length;
+	}
+
+	/**
+	 * @return the hero at the given rank; 0 is best
+	 */
+	public Hero get(int rank) {
+		return Hero.fromOrdinal(ordinals[rank]);
+	}
+
+	/**
+	 * @return the best-ranked hero in the pool, or {@code null} if none is
+	 */
+	public Hero best(long pool) {
+		int rank = nextRank(0, pool);
+		return rank < 0 ? null : get(rank);
+	}
+
+	/**
+	 * @return the worst-ranked hero in the pool, or {@code null} if none is
+	 */
+	public Hero worst(long pool) {
+		int rank = previousRank(ordinals.length - 1, pool);
+		return rank < 0 ? null : get(rank);
+	}
+
+	/**
+	 * @return up to {@code k} heroes from the pool, best first
+	 */
+	public Iterable<Hero> top(int k, long pool) {
+		return () -> new RankIterator(k, pool, true);
+	}
+
+	/**
+	 * @return up to {@code k} heroes from the pool, worst first
+	 */
+	public Iterable<Hero> bottom(int k, long pool) {
+		return () -> new RankIterator(k, pool, false);
+	}
+
+	/**
+	 * @return all heroes from the pool, best first
+	 */
+	public Iterable<Hero> available(long pool) {
+		return top(ordinals.length, pool);
+	}
+
+	private int nextRank(int from, long pool) {
+		for (int rank = from; rank < ordinals.length; rank++)
+			if ((pool & (1L << ordinals[rank])) != 0)
+				return rank;
+		return -1;
+	}
+
+	private int previousRank(int from, long pool) {
+		for (int rank = from; rank >= 0; rank--)
+			if ((pool & (1L << ordinals[rank])) != 0)
+				return rank;
+		return -1;
+	}
+
+	private class RankIterator implements Iterator<Hero> {
+		private final long pool;
+		private final boolean bestFirst;
+		private int remaining;
+		private int rank;
+
+		RankIterator(int k, long pool, boolean bestFirst) {
+			this.pool = pool;
+			this.bestFirst = bestFirst;
+			this.remaining = k;
+			this.rank = bestFirst ? nextRank(0, pool) : previousRank(ordinals.length - 1, pool);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0 && rank >= 0;
+		}
+
+		@Override
+		public Hero next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Hero hero = get(rank);
+			remaining--;
+			rank = bestFirst ? nextRank(rank + 1, pool) : previousRank(rank - 1, pool);
+			return hero;
+		}
+	}
+}
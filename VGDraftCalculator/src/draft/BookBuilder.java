@@ -0,0 +1,36 @@
+package draft;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import algorithm.Algorithm;
+import algorithm.Engine;
+import algorithm.OpeningBook;
+import data.Calculator;
+
+/**
+ * Offline builder of the {@link OpeningBook} the {@link MetaMainframe} loads. 
+ * Rerun it whenever the matrix data changes; a book built from other data is ignored.
+ * <p>
+ * Arguments, all optional: phases to cover (default 3: both bans and the first pick), 
+ * algorithm (default {@link Algorithm#PRUNING}, as the mainframe uses), search depth.
+ */
+public class BookBuilder {
+
+	private static final int DEFAULT_PHASES = 3;
+
+	public static void main(String[] args) throws IOException {
+		int phases = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PHASES;
+		Engine engine = new Engine(new Calculator(MetaMainframe.getMatrix()));
+		if (args.length > 1)
+			engine.setAlgorithm(Algorithm.valueOf(args[1]));
+		if (args.length > 2)
+			engine.setSearchDepth(Integer.parseInt(args[2]));
+
+		long start = System.nanoTime();
+		OpeningBook book = OpeningBook.build(engine, phases, Format.SINGLE_BAN, Format.DOUBLE_BAN);
+		book.write(Paths.get(MetaMainframe.BOOK_FILE_PATH));
+		System.out.println(String.format("Wrote %s to %s in %d s", book, MetaMainframe.BOOK_FILE_PATH, 
+				(System.nanoTime() - start) / 1_000_000_000L));
+	}
+}
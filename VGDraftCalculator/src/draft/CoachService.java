@@ -0,0 +1,47 @@
+package draft;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+
+import javax.management.JMException;
+
+import algorithm.MatrixProvider;
+import server.CoachServer;
+
+/**
+ * Runs the {@link MetaMainframe}'s engine as a local HTTP/JSON service (see {@link CoachServer}).
+ * <p>
+ * Arguments, all optional: port (default 8080), request timeout in ms (default {@value CoachServer#DEFAULT_TIMEOUT_MILLIS}),
+ * compute threads (default one per core), waiting searches (default {@value CoachServer#DEFAULT_COMPUTE_QUEUE}), 
+ * directory to watch for new compiled matrices (default the working directory, where {@link MatrixCompiler} writes them).
+ * New matrices are swapped in while serving (see {@link MatrixProvider}).
+ * <p>
+ * The engine's {@link algorithm.EngineMetrics metrics} are registered over JMX, as {@code metamainframe:type=Engine,name="coach"}.
+ */
+public class CoachService {
+
+	private static final int DEFAULT_PORT = 8080;
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		long timeoutMillis = args.length > 1 ? Long.parseLong(args[1]) : CoachServer.DEFAULT_TIMEOUT_MILLIS;
+		int computeThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int computeQueue = args.length > 3 ? Integer.parseInt(args[3]) : CoachServer.DEFAULT_COMPUTE_QUEUE;
+		String matrices = args.length > 4 ? args[4] : ".";
+
+		MatrixProvider engines = MetaMainframe.getEngines();
+		CoachServer server = new CoachServer(engines, new InetSocketAddress(port),
+				computeThreads, computeQueue, timeoutMillis);
+		try {
+			server.getEngine().getMetrics().register("coach");
+		} catch (JMException e) {
+			e.printStackTrace();
+			System.out.println("Metrics registration failed! Continuing without them.");
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+		engines.watch(Paths.get(matrices), MatrixProvider.DEFAULT_GLOB);
+		server.start();
+		System.out.println("Coaching on http://localhost:" + server.getAddress().getPort() + "/coach");
+	}
+}
@@ -1,101 +1,91 @@
 package draft;
 
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
 
 import data.Hero;
+import data.HeroMask;
 
+/**
+ * Mutable handle on a draft in progress; a thin view over an immutable {@link DraftState}.
+ */
 public class DraftSession implements Cloneable {
 
-	private Format phases;
-	private Set<Hero> banned;
-	private Roster blue;
-	private Roster red;
-	private int phaseNumber;
+	private DraftState state;
 	
 	public DraftSession(Format format) {
-		this.phases = format;
-		this.blue = new Roster(phases.blueRoster());
-		this.red = new Roster(phases.redRoster());
-		this.banned = new HashSet<>();
-		this.phaseNumber = 0;
+		this(new DraftState(format));
+	}
+
+	public DraftSession(DraftState state) {
+		this.state = state;
 	}
 	
 	public DraftSession whatIf(Hero hero) {
-		DraftSession hypothetical = this.clone();
-		hypothetical.pickOrBan(hero);
-		return hypothetical;
+		return new DraftSession(state.whatIf(hero));
+	}
+	
+	public DraftState getState() {
+		return state;
 	}
 	
 	public Format getFormat() {
-		return phases;
+		return state.getFormat();
 	}
 	
 	public int currentPhaseNo() {
-		return phaseNumber;
+		return state.currentPhaseNo();
 	}
 	
 	public Phase currentPhase() {
-		return phases.get(phaseNumber);
+		return state.currentPhase();
 	}
 	
 	public boolean isFull() {
-		return phaseNumber >= phases.size();
+		return state.isFull();
 	}
 	
 	/**
 	 * Pass {@code null} to skip a hero (e.g., skip a ban).
 	 */
 	public void pickOrBan(Hero next) {
-		Phase phase = phases.get(phaseNumber);
-		
-		if (phase.isPick()) {
-			if (next == null)
-				throw new IllegalArgumentException("Cannot skip a pick!");
-			if (phase.isBlue())
-				blue.add(next);
-			else
-				red.add(next);
-		} else {
-			banned.add(next);
-		}
-		phaseNumber++;
+		state = state.whatIf(next);
 	}
 
 	/**
-	 * @return currently available heroes
+	 * @return currently available heroes (read-only)
 	 */
 	public Set<Hero> currentPool() {
-		Set<Hero> pool = new HashSet<>(Arrays.asList(Hero.values()));
-		pool.removeAll(blue.getPicked());
-		pool.removeAll(red.getPicked());
-		pool.removeAll(banned);
-		return pool;
+		return HeroMask.asSet(state.poolMask());
 	}
 	
 	public Strategy getStrategy() {
-		return phases.strategy(phaseNumber);
+		return state.getStrategy();
 	}
 	
-	public Roster getBlue() { return blue; }
-	public Roster getRed() { return red; }
+	/**
+	 * @return a live view of the blue team: heroes {@link Roster#add(Hero) added} to it join this draft
+	 */
+	public Roster getBlue() { return new Roster(this, true); }
+	public Roster getRed() { return new Roster(this, false); }
 	
 	public Roster pickingTeam() {
-		return currentPhase().isBlue() ? blue : red;
+		return currentPhase().isBlue() ? getBlue() : getRed();
 	}
 	
 	public Roster enemyTeam() {
-		return currentPhase().isBlue() ? red : blue;
+		return currentPhase().isBlue() ? getRed() : getBlue();
+	}
+
+	/**
+	 * Puts the given heroes on a team, in the same phase (for {@link Roster} views)
+	 */
+	void setTeam(boolean blue, long team) {
+		state = DraftState.of(getFormat(), blue ? team : state.blueMask(), blue ? state.redMask() : team,
+				state.bannedMask(), state.currentPhaseNo());
 	}
 
 	@Override
 	public DraftSession clone() {
-		DraftSession clone = new DraftSession(phases);
-		clone.banned = new HashSet<>(this.banned);
-		clone.blue = this.blue.clone();
-		clone.red = this.red.clone();
-		clone.phaseNumber = this.phaseNumber;
-		return clone;
+		return new DraftSession(state);
 	}
 }
@@ -0,0 +1,167 @@
+package draft;
+
+import java.util.SplittableRandom;
+
+import data.Hero;
+import data.HeroMask;
+
+/**
+ * Immutable, allocation-light snapshot of a draft: both rosters and the bans as {@link HeroMask}s, plus the phase.
+ * <p>
+ * This is the representation the search algorithms work with directly;
+ * {@link DraftSession} and {@link Roster} are views over it.
+ */
+public final class DraftState {
+
+	// Zobrist keys: one random word per (hero, slot), phase and format, fixed seed for reproducible hashes
+	private static final long[] BLUE_KEYS = new long[Hero.values().length];
+	private static final long[] RED_KEYS = new long[Hero.values().length];
+	private static final long[] BAN_KEYS = new long[Hero.values().length];
+	private static final long[] PHASE_KEYS;
+	private static final long[] FORMAT_KEYS = new long[Format.values().length];
+	static {
+		SplittableRandom random = new SplittableRandom(0x5EED_DAF7L);
+		int maxPhases = 0;
+		for (Format format : Format.values()) {
+			FORMAT_KEYS[format.ordinal()] = random.nextLong();
+			maxPhases = Math.max(maxPhases, format.size());
+		}
+		for (int i = 0; i < BLUE_KEYS.length; i++) {
+			BLUE_KEYS[i] = random.nextLong();
+			RED_KEYS[i] = random.nextLong();
+			BAN_KEYS[i] = random.nextLong();
+		}
+		PHASE_KEYS = new long[maxPhases + 1];
+		for (int i = 0; i < PHASE_KEYS.length; i++)
+			PHASE_KEYS[i] = random.nextLong();
+	}
+
+	private final Format format;
+	private final long blue;
+	private final long red;
+	private final long banned;
+	private final int phaseNumber;
+	private final long zobrist;
+
+	public DraftState(Format format) {
+		this(format, HeroMask.NONE, HeroMask.NONE, HeroMask.NONE, 0,
+				FORMAT_KEYS[format.ordinal()] ^ PHASE_KEYS[0]);
+	}
+
+	private DraftState(Format format, long blue, long red, long banned, int phaseNumber, long zobrist) {
+		this.format = format;
+		this.blue = blue;
+		this.red = red;
+		this.banned = banned;
+		this.phaseNumber = phaseNumber;
+		this.zobrist = zobrist;
+	}
+
+	/**
+	 * Pass {@code null} to skip a hero (e.g., skip a ban).
+	 *
+	 * @return the state after the given hero is picked or banned in the current phase
+	 */
+	public DraftState whatIf(Hero next) {
+		Phase phase = format.get(phaseNumber);
+		long hash = zobrist ^ PHASE_KEYS[phaseNumber] ^ PHASE_KEYS[phaseNumber + 1];
+
+		if (phase.isPick()) {
+			if (next == null)
+				throw new IllegalArgumentException("Cannot skip a pick!");
+			if (phase.isBlue())
+				return new DraftState(format, blue | next.mask(), red, banned, phaseNumber + 1,
+						hash ^ key(BLUE_KEYS, blue, next));
+			else
+				return new DraftState(format, blue, red | next.mask(), banned, phaseNumber + 1,
+						hash ^ key(RED_KEYS, red, next));
+		} else {
+			if (next == null)
+				return new DraftState(format, blue, red, banned, phaseNumber + 1, hash);
+			return new DraftState(format, blue, red, banned | next.mask(), phaseNumber + 1,
+					hash ^ key(BAN_KEYS, banned, next));
+		}
+	}
+
+	/**
+	 * @return the state with exactly these rosters and bans at the given phase, e.g. as read back from storage
+	 */
+	public static DraftState of(Format format, long blue, long red, long banned, int phaseNumber) {
+		if (phaseNumber < 0 || phaseNumber > format.size())
+			throw new IllegalArgumentException("No phase " + phaseNumber + " in " + format);
+		if (((blue | red | banned) & ~HeroMask.ALL) != 0 
+				|| (blue & red) != 0 || (blue & banned) != 0 || (red & banned) != 0)
+			throw new IllegalArgumentException("Not a draft: " + blue + ", " + red + ", " + banned);
+		long hash = FORMAT_KEYS[format.ordinal()] ^ PHASE_KEYS[phaseNumber]
+				^ keys(BLUE_KEYS, blue) ^ keys(RED_KEYS, red) ^ keys(BAN_KEYS, banned);
+		return new DraftState(format, blue, red, banned, phaseNumber, hash);
+	}
+
+	private static long keys(long[] keys, long mask) {
+		long hash = 0L;
+		for (long m = mask; m != 0; m &= m - 1)
+			hash ^= keys[Long.numberOfTrailingZeros(m)];
+		return hash;
+	}
+
+	/**
+	 * @return the key to toggle when adding the hero to the mask (none if it is already there)
+	 */
+	private static long key(long[] keys, long mask, Hero hero) {
+		return HeroMask.contains(mask, hero) ? 0L : keys[hero.ordinal()];
+	}
+
+	public Format getFormat() { return format; }
+	public int currentPhaseNo() { return phaseNumber; }
+	public Phase currentPhase() { return format.get(phaseNumber); }
+	public Strategy getStrategy() { return format.strategy(phaseNumber); }
+	public boolean isFull() { return phaseNumber >= format.size(); }
+	public int remainingPhases() { return format.size() - phaseNumber; }
+
+	public long blueMask() { return blue; }
+	public long redMask() { return red; }
+	public long bannedMask() { return banned; }
+
+	/**
+	 * Incrementally maintained Zobrist hash of (format, blue picks, red picks, bans, phase).
+	 * Independent of the order in which heroes were picked or banned.
+	 */
+	public long zobrist() { return zobrist; }
+
+	/**
+	 * @return currently available heroes
+	 */
+	public long poolMask() {
+		return HeroMask.ALL & ~(blue | red | banned);
+	}
+
+	public long pickingTeam() {
+		return currentPhase().isBlue() ? blue : red;
+	}
+
+	public long enemyTeam() {
+		return currentPhase().isBlue() ? red : blue;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof DraftState))
+			return false;
+		DraftState other = (DraftState) obj;
+		return format == other.format && phaseNumber == other.phaseNumber
+				&& blue == other.blue && red == other.red && banned == other.banned;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (zobrist ^ (zobrist >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return format + "[" + phaseNumber + "] " + HeroMask.asSet(blue) + " vs. " + HeroMask.asSet(red)
+				+ ", banned " + HeroMask.asSet(banned);
+	}
+}
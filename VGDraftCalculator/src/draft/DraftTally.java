@@ -0,0 +1,100 @@
+package draft;
+
+import data.Hero;
+import data.HeroMask;
+import data.HeroMatrix;
+
+/**
+ * A {@link DraftState} plus running per-hero aggregates: for each team, every hero's summed log-synergy
+ * with that team and summed log-odds against it.
+ * <p>
+ * Each pick updates the aggregates in O(heroes), so the marginal value of any candidate
+ * (and the score of the rosters) can be read off without rescanning the rosters.
+ * Mutable and reusable via {@link #reset(DraftState)}; confine each instance to one thread.
+ */
+public class DraftTally {
+
+	private static final int HEROES = Hero.values().length;
+	private static final int BLUE = 0;
+	private static final int RED = 1;
+
+	private final HeroMatrix meta;
+	// [team][hero ordinal]
+	private final double[][] synergyWith = new double[2][HEROES];
+	private final double[][] matchupAgainst = new double[2][HEROES];
+	private DraftState state;
+
+	public DraftTally(HeroMatrix meta) {
+		this.meta = meta;
+	}
+
+	/**
+	 * Recomputes every aggregate for the given state
+	 */
+	public DraftTally reset(DraftState state) {
+		this.state = state;
+		for (int team = BLUE; team <= RED; team++) {
+			long roster = team == BLUE ? state.blueMask() : state.redMask();
+			for (int i = 0; i < HEROES; i++) {
+				Hero hero = Hero.fromOrdinal(i);
+				double synergy = 0.0;
+				double matchup = 0.0;
+				for (long m = roster; m != 0; m &= m - 1) {
+					Hero member = HeroMask.first(m);
+					synergy += meta.logOdds(hero, member, true);
+					matchup += meta.logOdds(hero, member, false);
+				}
+				synergyWith[team][i] = synergy;
+				matchupAgainst[team][i] = matchup;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Takes on another tally's state and aggregates, e.g. to branch a search without undoing picks
+	 */
+	public DraftTally copyFrom(DraftTally other) {
+		this.state = other.state;
+		for (int team = BLUE; team <= RED; team++) {
+			System.arraycopy(other.synergyWith[team], 0, synergyWith[team], 0, HEROES);
+			System.arraycopy(other.matchupAgainst[team], 0, matchupAgainst[team], 0, HEROES);
+		}
+		return this;
+	}
+
+	/**
+	 * Pass {@code null} to skip a hero (e.g., skip a ban).
+	 */
+	public void pickOrBan(Hero next) {
+		Phase phase = state.currentPhase();
+		boolean isNew = next != null && HeroMask.contains(state.poolMask(), next);
+		state = state.whatIf(next);
+		if (phase.isPick() && isNew) {
+			int team = phase.isBlue() ? BLUE : RED;
+			for (int i = 0; i < HEROES; i++) {
+				Hero hero = Hero.fromOrdinal(i);
+				synergyWith[team][i] += meta.logOdds(hero, next, true);
+				matchupAgainst[team][i] += meta.logOdds(hero, next, false);
+			}
+		}
+	}
+
+	public DraftState getState() {
+		return state;
+	}
+
+	/**
+	 * @return sum of the hero's log-synergy with each member of the team
+	 */
+	public double synergyWith(boolean blue, Hero hero) {
+		return synergyWith[blue ? BLUE : RED][hero.ordinal()];
+	}
+
+	/**
+	 * @return sum of the hero's log-odds against each member of the team
+	 */
+	public double matchupAgainst(boolean blue, Hero hero) {
+		return matchupAgainst[blue ? BLUE : RED][hero.ordinal()];
+	}
+}
@@ -0,0 +1,36 @@
+package draft;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import javax.xml.stream.XMLStreamException;
+
+import data.HeroMatrix;
+import data.MatrixLoader;
+
+/**
+ * Offline compiler of the VG8 XML exports into the binary matrix the {@link MetaMainframe} maps at startup 
+ * (see {@link MatrixLoader#loadCompiled(Path)}). Rerun it whenever the exports change: 
+ * the mainframe prefers the compiled file while there is one, and a running {@link CoachService} picks it up 
+ * (see {@link algorithm.MatrixProvider}).
+ * <p>
+ * Arguments, all optional: output file (default {@value MetaMainframe#MATRIX_FILE_PATH}), 
+ * and {@code compact} to leave out the logs and rankings, for a smaller file that loads a little slower.
+ */
+public class MatrixCompiler {
+
+	public static void main(String[] args) throws IOException, XMLStreamException {
+		Path file = Paths.get(args.length > 0 ? args[0] : MetaMainframe.MATRIX_FILE_PATH);
+		boolean indexes = args.length < 2 || !args[1].equals("compact");
+
+		HeroMatrix matrix = MatrixLoader.load(Paths.get(MetaMainframe.VS_FILE_PATH), Paths.get(MetaMainframe.SYNERGY_FILE_PATH));
+		// renamed into place, so that no one watching reads it half written
+		Path partial = file.resolveSibling(file.getFileName() + ".partial");
+		MatrixLoader.compile(matrix, partial, indexes);
+		Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		System.out.println(String.format("Wrote %s (%d bytes%s)", file, file.toFile().length(), indexes ? "" : ", compact"));
+	}
+}
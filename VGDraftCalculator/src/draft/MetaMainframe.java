@@ -1,16 +1,19 @@
 package draft;
 
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLStreamException;
 
 import algorithm.Engine;
+import algorithm.EngineSession;
+import algorithm.MatrixProvider;
+import algorithm.OpeningBook;
 import data.Calculator;
 import data.Hero;
 import data.HeroMatrix;
@@ -23,26 +26,74 @@ import data.Pick;
 public class MetaMainframe {
 
 	private static final Format FORMAT = Format.DOUBLE_BAN;
-	private static final String VS_FILE_PATH = "VG8VersusMatrix.xml";
-	private static final String SYNERGY_FILE_PATH = "VG8SynergyMatrix.xml";
-	private static HeroMatrix matrix;
-	static {
+	static final String VS_FILE_PATH = "VG8VersusMatrix.xml";
+	static final String SYNERGY_FILE_PATH = "VG8SynergyMatrix.xml";
+	static final String MATRIX_FILE_PATH = "VG8Matrix.bin"; // compiled from the above by MatrixCompiler
+	static final String BOOK_FILE_PATH = "VGOpeningBook.bin";
+	private static final int PONDER_OPTIONS = 5; // top suggestions searched ahead while waiting for input
+	// the engine over the current matrix; a new one is swapped in whenever the matrix is reloaded
+	private static final MatrixProvider engines = new MatrixProvider(startup());
+	
+	/**
+	 * @return an engine over the matrix as at startup, and the opening book if it was built from that matrix and these settings
+	 */
+	private static Engine startup() {
+		HeroMatrix matrix = null;
+		try {
+			matrix = MatrixLoader.loadCompiled(Paths.get(MATRIX_FILE_PATH));
+		} catch (NoSuchFileException e) {
+			// none compiled: parse the exports
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.println("Compiled matrix load failed! Recompile it with MatrixCompiler. Continuing with the XML.");
+		}
+		if (matrix == null) {
+			try {
+				matrix = MatrixLoader.load(Paths.get(VS_FILE_PATH), Paths.get(SYNERGY_FILE_PATH));
+			} catch (IOException | XMLStreamException | IllegalArgumentException e) {
+				e.printStackTrace();
+				System.out.println("File load failed! Continuing with random simulated data.");
+				matrix = MatrixLoader.loadRandom();
+			}
+		}
+		
+		Engine engine = new Engine(new Calculator(matrix));
 		try {
-			matrix = MatrixLoader.load(Paths.get(VS_FILE_PATH), Paths.get(SYNERGY_FILE_PATH));
-		} catch (ParserConfigurationException | SAXException | IOException | IllegalArgumentException e) {
+			OpeningBook book = OpeningBook.read(Paths.get(BOOK_FILE_PATH));
+			if (!book.isFor(matrix))
+				System.out.println("Opening book is stale! Rebuild it with BookBuilder. Continuing without it.");
+			else if (!book.isSearchedLike(engine))
+				System.out.println("Opening book was built with other search settings! Rebuild it with BookBuilder. Continuing without it.");
+			else
+				engine.setOpeningBook(book);
+		} catch (NoSuchFileException e) {
+			// none built: search every position
+		} catch (IOException e) {
 			e.printStackTrace();
-			System.out.println("File load failed! Continuing with random simulated data.");
-			matrix = MatrixLoader.loadRandom();
+			System.out.println("Opening book load failed! Continuing without it.");
 		}
+		return engine;
+	}
+	
+	static HeroMatrix getMatrix() {
+		return engines.get().getCalculator().getMatrix();
+	}
+	
+	static Engine getEngine() {
+		return engines.get();
+	}
+	
+	static MatrixProvider getEngines() {
+		return engines;
 	}
-	private static Engine engine = new Engine(new Calculator(matrix));
 	
 	/**
 	 * Command line use of the application
 	 */
 	public static void main(String[] args) {
 		Scanner scanner = new Scanner(System.in);
-		DraftSession sesh = new DraftSession(FORMAT);
+		Engine engine = engines.get(); // the whole draft on one matrix
+		EngineSession sesh = new EngineSession(engine, FORMAT); // reuses each phase's search for the next
 		
 		System.out.println();
 		System.out.println("======== Vainglory Meta Mainframe ========");
@@ -50,20 +101,22 @@ public class MetaMainframe {
 		for (int phase = 0; phase < FORMAT.size(); phase++) {
 			
 			// PROVIDE ADVICE
-			List<Pick> optimalNextPicks = engine.suggestions(sesh);
+			List<Pick> optimalNextPicks = sesh.suggestions();
 			Double score = optimalNextPicks.get(0).getScore();
+			DraftSession draft = sesh.getDraft();
 			System.out.println(String.format("Current odds blue wins: %.3f   %s vs. %s", 
-					score, sesh.getBlue(), sesh.getRed()));
+					score, draft.getBlue(), draft.getRed()));
 			String advice = "Optimal next picks: ";
 			for (Pick p : optimalNextPicks)
 				advice += p + " ";
 			System.out.println(advice);
+			sesh.ponder(PONDER_OPTIONS);
 
 			
 			// PARSE INPUTS
 			Hero hero = null;
 			while (true) {
-				System.out.println("Choose next hero for " + sesh.currentPhase().name() + ":");
+				System.out.println("Choose next hero for " + draft.currentPhase().name() + ":");
 				
 				// String input = "best"; // for debugging
 				String input = scanner.next();
@@ -93,8 +146,9 @@ public class MetaMainframe {
 			
 			sesh.pickOrBan(hero);
 		}
+		DraftSession draft = sesh.getDraft();
 		System.out.println(String.format("Final odds blue wins: %.3f   %s vs. %s", 
-				engine.currentOddsForBlue(sesh), sesh.getBlue(), sesh.getRed()));
+				engine.currentOddsForBlue(draft), draft.getBlue(), draft.getRed()));
 		scanner.close();
 	}
 	
@@ -102,6 +156,28 @@ public class MetaMainframe {
 	 * Stateless entrance into the application
 	 */
 	public static Map<String, Integer> coachMeSenpai (String draftFormat, final List<String> selected) {
-		return engine.coachMeSenpai(draftFormat, selected);
+		return engines.get().coachMeSenpai(draftFormat, selected);
+	}
+	
+	/**
+	 * Stateful entrance into the application: the draft so far is kept under the session id, 
+	 * so each call only searches what is new since the previous one
+	 */
+	public static Map<String, Integer> coachMeSenpai (String sessionId, String draftFormat, final List<String> selected) {
+		return engines.get().coachMeSenpai(sessionId, draftFormat, selected);
+	}
+	
+	/**
+	 * Stateless entrance into the application for many drafts at once, answering in input order
+	 */
+	public static Stream<Map<String, Integer>> coachAll (String draftFormat, final List<? extends List<String>> drafts) {
+		return engines.get().coachAll(draftFormat, drafts);
+	}
+	
+	/**
+	 * Stateless entrance into the application, answering within the given time
+	 */
+	public static Map<String, Integer> coachMeSenpai (String draftFormat, final List<String> selected, long budgetMillis) {
+		return engines.get().coachMeSenpai(draftFormat, selected, budgetMillis);
 	}
 }
@@ -1,29 +1,44 @@
 package draft;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import data.Hero;
+import data.HeroMask;
 import data.Pick;
 
 public class Roster implements Iterable<Hero>,Cloneable {
 
 	private int finalSize;
-	private Set<Hero> picked;
+	private long picked;
+	private DraftSession draft; // if a view of one of its teams, which then holds the picks
+	private boolean blue;
 	
 	public Roster(int finalSize) {
+		this(finalSize, HeroMask.NONE);
+	}
+
+	Roster(int finalSize, long picked) {
 		this.finalSize = finalSize;
-		this.picked = new HashSet<Hero>();
+		this.picked = picked;
 	}
 	
+	/**
+	 * A live view of one of the draft's teams
+	 */
+	Roster(DraftSession draft, boolean blue) {
+		this(blue ? draft.getFormat().blueRoster() : draft.getFormat().redRoster(), HeroMask.NONE);
+		this.draft = draft;
+		this.blue = blue;
+	}
+	
+	/**
+	 * @return a detached copy, even of a view
+	 */
 	@Override
 	public Roster clone() {
-		Roster clone = new Roster(finalSize);
-		clone.picked = new HashSet<Hero>(picked);
-//		System.out.println("CLONE " + picked + " => " + clone.picked);
-		return clone;
+		return new Roster(finalSize, mask());
 	}
 	
 	public Roster whatIf(Hero hero) {
@@ -33,18 +48,28 @@ public class Roster implements Iterable<Hero>,Cloneable {
 		return hypothetical;
 	}
 	
-	public int size() { return picked.size(); }
+	public int size() { return HeroMask.size(mask()); }
 	public int fullSize() { return finalSize; }
 	public int room() { return fullSize() - size(); }
-	public boolean isEmpty() { return picked.isEmpty(); }
+	public boolean isEmpty() { return mask() == HeroMask.NONE; }
 	public boolean isFull() { return room() == 0; }
-	public Set<Hero> getPicked() { return picked; }
+	public long mask() {
+		if (draft == null)
+			return picked;
+		return blue ? draft.getState().blueMask() : draft.getState().redMask();
+	}
+	/**
+	 * @return read-only view of the picked heroes
+	 */
+	public Set<Hero> getPicked() { return HeroMask.asSet(mask()); }
 	
 	public Roster add(Hero newHero) {
-		if (picked.size() < finalSize)
-			picked.add(newHero);
-		else
+		if (size() >= finalSize)
 			throw new IllegalStateException("Roster is already full. (Nice try, though!) " + toString());
+		if (draft == null)
+			picked |= newHero.mask();
+		else
+			draft.setTeam(blue, mask() | newHero.mask());
 		return this;
 	}
 	
@@ -62,13 +87,13 @@ public class Roster implements Iterable<Hero>,Cloneable {
 	
 	@Override
 	public Iterator<Hero> iterator() {
-		return picked.iterator();
+		return getPicked().iterator();
 	}
 	
 	@Override
 	public String toString() {
 		String heroes = "";
-		for (Hero hero : picked)
+		for (Hero hero : this)
 			heroes += hero + " ";
 		return "Roster: { " + heroes + "}";
 	}
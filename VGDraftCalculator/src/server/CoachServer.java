@@ -0,0 +1,323 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import algorithm.AdmissionController;
+import algorithm.AdmissionController.Admission;
+import algorithm.Engine;
+import algorithm.MatrixProvider;
+
+/**
+ * Embedded HTTP/JSON front end for {@link Engine#coachMeSenpai(String, List)}, on the JDK's own server:
+ * no container, nothing else to run.
+ * <p>
+ * Each request gets a thread of its own (virtual on Java 21 and later, pooled platform threads before),
+ * which only parses, waits and answers. Searches run on a separate bounded compute pool, so they never pin a carrier,
+ * and only so many wait for it: past that, requests are turned away at once (503) instead of piling up.
+ * A request not answered in time gets a 504, and its search is cancelled, so that it frees the compute thread:
+ * the {@link algorithm.Algorithm#PRUNING pruning} search stops at the next node (a session keeps what it grew for a retry),
+ * the cheaper tiers are bounded anyway.
+ * Before it comes to that, the {@link AdmissionController} serves requests cheaper as load builds up,
+ * so that latency stays bounded at the expense of the suggestions' quality.
+ * <p>
+ * The engine may be swapped while serving (see {@link MatrixProvider}): each request is served by the one current 
+ * when it arrived, to the end.
+ * <p>
+ * {@code POST /coach} takes {@code {"format": "DOUBLE_BAN", "selected": ["Taka", ...]}}, and optionally either
+ * {@code "session"}, an id to keep the draft under between calls ({@link Engine#coachMeSenpai(String, String, List)}),
+ * or {@code "budgetMillis"}, to answer by iterative deepening within that time. It answers the advice as a JSON object,
+ * plus the {@link AdmissionController.Tier tier} that served it as {@code "tier"}.
+ * {@code GET /health} answers {@code {"status": "ok"}}.
+ */
+public class CoachServer {
+
+	public static final int DEFAULT_COMPUTE_QUEUE = 64;
+	public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+	private static final int MAX_BODY_BYTES = 1 << 16;
+
+	private final Supplier<Engine> engines;
+	private final AdmissionController admissions;
+	private final HttpServer http;
+	private final ExecutorService requests;
+	private final ThreadPoolExecutor compute;
+	private final long timeoutMillis;
+
+	/**
+	 * A server with a compute thread per core, {@value #DEFAULT_COMPUTE_QUEUE} waiting searches at most,
+	 * and a {@value #DEFAULT_TIMEOUT_MILLIS} ms timeout
+	 */
+	public CoachServer(Engine engine, InetSocketAddress address) throws IOException {
+		this(() -> engine, address);
+	}
+
+	/**
+	 * @param engines the engine for each request, e.g. a {@link MatrixProvider}
+	 */
+	public CoachServer(Supplier<Engine> engines, InetSocketAddress address) throws IOException {
+		this(engines, address, Runtime.getRuntime().availableProcessors(), DEFAULT_COMPUTE_QUEUE, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * @param computeThreads searches run at once
+	 * @param computeQueue searches waiting for a compute thread, at most
+	 * @param timeoutMillis per request, from when it is parsed
+	 */
+	public CoachServer(Engine engine, InetSocketAddress address, int computeThreads, int computeQueue, long timeoutMillis)
+			throws IOException {
+		this(() -> engine, address, computeThreads, computeQueue, timeoutMillis);
+	}
+
+	/**
+	 * @param engines the engine for each request, e.g. a {@link MatrixProvider}
+	 * @see #CoachServer(Engine, InetSocketAddress, int, int, long)
+	 */
+	public CoachServer(Supplier<Engine> engines, InetSocketAddress address, int computeThreads, int computeQueue, 
+			long timeoutMillis) throws IOException {
+		if (computeThreads < 1 || computeQueue < 1 || timeoutMillis < 1)
+			throw new IllegalArgumentException("Compute threads, queue and timeout must all be positive");
+		this.engines = engines;
+		this.admissions = new AdmissionController(engines, computeThreads);
+		this.timeoutMillis = timeoutMillis;
+		this.compute = new ThreadPoolExecutor(computeThreads, computeThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(computeQueue), threads("coach-compute-"), new ThreadPoolExecutor.AbortPolicy());
+		this.requests = threadPerRequest();
+		this.http = HttpServer.create(address, 0);
+		http.setExecutor(requests);
+		http.createContext("/coach", exchanged(this::coach));
+		http.createContext("/health", exchanged(this::health));
+	}
+
+	public void start() {
+		http.start();
+	}
+
+	/**
+	 * Stops accepting requests, lets those in progress finish for up to the given time, then stops the threads
+	 */
+	public void stop(int delaySeconds) {
+		http.stop(delaySeconds);
+		requests.shutdownNow();
+		compute.shutdownNow();
+	}
+
+	/**
+	 * @return where the server listens, with the actual port if it was given as 0
+	 */
+	public InetSocketAddress getAddress() {
+		return http.getAddress();
+	}
+
+	/**
+	 * @return the engine new requests are served by
+	 */
+	public Engine getEngine() { return engines.get(); }
+	public AdmissionController getAdmissionController() { return admissions; }
+	public long getTimeoutMillis() { return timeoutMillis; }
+
+	/**
+	 * A virtual thread per task where the runtime has them (Java 21 and later),
+	 * looked up reflectively so the code still builds and runs on older ones
+	 */
+	private static ExecutorService threadPerRequest() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// (also where they are still a disabled preview)
+			return Executors.newCachedThreadPool(threads("coach-request-"));
+		}
+	}
+
+	private static ThreadFactory threads(String prefix) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	//////////////////
+	//   Handlers   //
+	//////////////////
+
+	private void health(HttpExchange exchange) throws IOException {
+		respond(exchange, 200, Json.write(Collections.singletonMap("status", "ok")));
+	}
+
+	private void coach(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			exchange.getResponseHeaders().set("Allow", "POST");
+			respond(exchange, 405, error("Use POST"));
+			return;
+		}
+		CoachRequest request;
+		try {
+			request = CoachRequest.parse(readBody(exchange));
+		} catch (IllegalArgumentException e) {
+			respond(exchange, 400, error(e.getMessage()));
+			return;
+		}
+
+		Admission admission = admissions.admit();
+		Future<Map<String, Integer>> answer;
+		try {
+			answer = compute.submit(() -> {
+				try {
+					return request.answer(admission);
+				} finally {
+					admission.close();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			admission.close();
+			respond(exchange, 503, error("Too busy; try again later"));
+			return;
+		}
+		try {
+			Map<String, Object> advice = new LinkedHashMap<>(answer.get(timeoutMillis, TimeUnit.MILLISECONDS));
+			advice.put("tier", admission.getTier());
+			respond(exchange, 200, Json.write(advice));
+		} catch (TimeoutException e) {
+			answer.cancel(true); // interrupts the search, or drops it if it never started
+			admission.close(); // (in the latter case)
+			respond(exchange, 504, error("No answer within " + timeoutMillis + " ms"));
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IllegalArgumentException) // e.g. an unknown hero
+				respond(exchange, 400, error(e.getCause().getMessage()));
+			else
+				respond(exchange, 500, error("Search failed: " + e.getCause()));
+		} catch (InterruptedException e) {
+			answer.cancel(true);
+			admission.close();
+			Thread.currentThread().interrupt(); // shutting down
+			respond(exchange, 503, error("Shutting down"));
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the body is too long or not UTF-8 text
+	 */
+	private static String readBody(HttpExchange exchange) throws IOException {
+		try (InputStream in = exchange.getRequestBody()) {
+			byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+			if (body.length > MAX_BODY_BYTES)
+				throw new IllegalArgumentException("Request body over " + MAX_BODY_BYTES + " bytes");
+			return new String(body, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String error(String message) {
+		return Json.write(Collections.singletonMap("error", message));
+	}
+
+	private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Closes the exchange whatever the handler does, answering a 500 if it failed before answering
+	 */
+	private static HttpHandler exchanged(HttpHandler handler) {
+		return exchange -> {
+			try {
+				handler.handle(exchange);
+			} catch (RuntimeException e) {
+				if (exchange.getResponseCode() == -1)
+					respond(exchange, 500, error(e.toString()));
+			} finally {
+				exchange.close();
+			}
+		};
+	}
+
+	/**
+	 * The body of a {@code POST /coach}
+	 */
+	private static class CoachRequest {
+		private final String format;
+		private final List<String> selected;
+		private final String session;
+		private final Long budgetMillis;
+
+		private CoachRequest(String format, List<String> selected, String session, Long budgetMillis) {
+			this.format = format;
+			this.selected = selected;
+			this.session = session;
+			this.budgetMillis = budgetMillis;
+		}
+
+		/**
+		 * @throws IllegalArgumentException if it is not valid JSON or not a valid request;
+		 * 		the format and hero names are checked by the engine
+		 */
+		static CoachRequest parse(String body) {
+			Object parsed = Json.parse(body);
+			if (!(parsed instanceof Map))
+				throw new IllegalArgumentException("Expected a JSON object");
+			Map<?, ?> json = (Map<?, ?>) parsed;
+
+			if (!(json.get("format") instanceof String))
+				throw new IllegalArgumentException("\"format\" must be a string, e.g. \"DOUBLE_BAN\"");
+			if (!(json.get("selected") instanceof List))
+				throw new IllegalArgumentException("\"selected\" must be a list of hero names");
+			List<String> selected = new ArrayList<>();
+			for (Object hero : (List<?>) json.get("selected")) {
+				if (!(hero instanceof String))
+					throw new IllegalArgumentException("\"selected\" must be a list of hero names");
+				selected.add((String) hero);
+			}
+
+			Object session = json.get("session");
+			if (session != null && !(session instanceof String))
+				throw new IllegalArgumentException("\"session\" must be a string");
+			Object budget = json.get("budgetMillis");
+			if (budget != null && (!(budget instanceof Double) || (Double) budget < 1))
+				throw new IllegalArgumentException("\"budgetMillis\" must be a positive number");
+			if (session != null && budget != null)
+				throw new IllegalArgumentException("Give \"session\" or \"budgetMillis\", not both");
+
+			return new CoachRequest((String) json.get("format"), selected, (String) session,
+					budget == null ? null : ((Double) budget).longValue());
+		}
+
+		Map<String, Integer> answer(Admission admission) {
+			if (session != null)
+				return admission.coachMeSenpai(session, format, selected);
+			if (budgetMillis != null)
+				return admission.coachMeSenpai(format, selected, budgetMillis);
+			return admission.coachMeSenpai(format, selected);
+		}
+	}
+}
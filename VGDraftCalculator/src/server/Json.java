@@ -0,0 +1,218 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for {@link CoachServer}: reads any document into maps, lists, strings, doubles,
+ * booleans and nulls, and writes flat objects.
+ */
+final class Json {
+
+	// objects and arrays nested deeper are refused, rather than parsed down the stack until it overflows
+	static final int MAX_DEPTH = 32;
+
+	private final String text;
+	private int at;
+	private int depth; // of objects and arrays open at {@link #at}
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the text is not one JSON value, or nests more than {@value #MAX_DEPTH} deep
+	 */
+	static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.value();
+		json.skipSpace();
+		if (json.at != text.length())
+			throw json.error("Unexpected trailing characters");
+		return value;
+	}
+
+	/**
+	 * @param object of strings, numbers, booleans and nulls (anything else as its string)
+	 */
+	static String write(Map<String, ?> object) {
+		StringBuilder json = new StringBuilder("{");
+		for (Map.Entry<String, ?> entry : object.entrySet()) {
+			if (json.length() > 1)
+				json.append(',');
+			quote(entry.getKey(), json).append(':');
+			Object value = entry.getValue();
+			if (value == null || value instanceof Number || value instanceof Boolean)
+				json.append(value);
+			else
+				quote(value.toString(), json);
+		}
+		return json.append('}').toString();
+	}
+
+	private static StringBuilder quote(String string, StringBuilder json) {
+		json.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+				case '"': json.append("\\\""); break;
+				case '\\': json.append("\\\\"); break;
+				case '\n': json.append("\\n"); break;
+				case '\r': json.append("\\r"); break;
+				case '\t': json.append("\\t"); break;
+				default:
+					if (c < ' ')
+						json.append(String.format("\\u%04x", (int) c));
+					else
+						json.append(c);
+			}
+		}
+		return json.append('"');
+	}
+
+	////////////////
+	//   Parser   //
+	////////////////
+
+	private Object value() {
+		skipSpace();
+		if (at == text.length())
+			throw error("Unexpected end");
+		switch (text.charAt(at)) {
+			case '{': return object();
+			case '[': return array();
+			case '"': return string();
+			case 't': return literal("true", Boolean.TRUE);
+			case 'f': return literal("false", Boolean.FALSE);
+			case 'n': return literal("null", null);
+			default: return number();
+		}
+	}
+
+	private Map<String, Object> object() {
+		Map<String, Object> object = new LinkedHashMap<>();
+		expect('{');
+		nest();
+		skipSpace();
+		if (peek('}')) {
+			depth--;
+			return object;
+		}
+		do {
+			skipSpace();
+			String key = string();
+			skipSpace();
+			expect(':');
+			object.put(key, value());
+			skipSpace();
+		} while (peek(','));
+		expect('}');
+		depth--;
+		return object;
+	}
+
+	private List<Object> array() {
+		List<Object> array = new ArrayList<>();
+		expect('[');
+		nest();
+		skipSpace();
+		if (peek(']')) {
+			depth--;
+			return array;
+		}
+		do {
+			array.add(value());
+			skipSpace();
+		} while (peek(','));
+		expect(']');
+		depth--;
+		return array;
+	}
+
+	private void nest() {
+		if (++depth > MAX_DEPTH)
+			throw error("Nested over " + MAX_DEPTH + " deep");
+	}
+
+	private String string() {
+		expect('"');
+		StringBuilder string = new StringBuilder();
+		while (true) {
+			if (at == text.length())
+				throw error("Unterminated string");
+			char c = text.charAt(at++);
+			if (c == '"')
+				return string.toString();
+			if (c != '\\') {
+				string.append(c);
+				continue;
+			}
+			if (at == text.length())
+				throw error("Unterminated string");
+			c = text.charAt(at++);
+			switch (c) {
+				case '"': case '\\': case '/': string.append(c); break;
+				case 'b': string.append('\b'); break;
+				case 'f': string.append('\f'); break;
+				case 'n': string.append('\n'); break;
+				case 'r': string.append('\r'); break;
+				case 't': string.append('\t'); break;
+				case 'u':
+					if (at + 4 > text.length())
+						throw error("Bad unicode escape");
+					try {
+						string.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Bad unicode escape");
+					}
+					at += 4;
+					break;
+				default:
+					throw error("Bad escape");
+			}
+		}
+	}
+
+	private Double number() {
+		int start = at;
+		while (at < text.length() && "+-.eE0123456789".indexOf(text.charAt(at)) >= 0)
+			at++;
+		try {
+			return Double.valueOf(text.substring(start, at));
+		} catch (NumberFormatException e) {
+			at = start;
+			throw error("Unexpected character");
+		}
+	}
+
+	private Object literal(String word, Object value) {
+		if (!text.startsWith(word, at))
+			throw error("Unexpected character");
+		at += word.length();
+		return value;
+	}
+
+	private void skipSpace() {
+		while (at < text.length() && Character.isWhitespace(text.charAt(at)))
+			at++;
+	}
+
+	private boolean peek(char c) {
+		if (at < text.length() && text.charAt(at) == c) {
+			at++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!peek(c))
+			throw error("Expected '" + c + "'");
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at character " + at + " of the JSON");
+	}
+}
@@ -0,0 +1,91 @@
+package algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import algorithm.AdmissionController.Admission;
+import algorithm.AdmissionController.Tier;
+import data.Calculator;
+import data.Hero;
+import data.MatrixLoader;
+import draft.DraftSession;
+import draft.Format;
+
+class AdmissionControllerTest {
+
+	private static Engine engine;
+	private static DraftSession session;
+
+	@BeforeAll
+	static void load() throws Exception {
+		engine = new Engine(new Calculator(MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"))));
+		// one pick left: cheap to serve at any tier
+		session = new DraftSession(Format.SINGLE_BAN);
+		for (int i = 0; i < Format.SINGLE_BAN.size() - 1; i++)
+			session.pickOrBan(Hero.fromOrdinal(i));
+	}
+
+	/**
+	 * With a capacity of 1: full searches while at most 2 are in flight, shallow ones up to 8, then greedy fills
+	 */
+	@Test
+	void tiersFollowTheLoad() {
+		AdmissionController admissions = new AdmissionController(engine, 1);
+		admissions.setFullWaitMillis(60_000);
+		admissions.setShallowWaitMillis(60_000);
+
+		List<Admission> open = new ArrayList<>();
+		for (int load = 1; load <= 10; load++) {
+			Admission admission = admissions.admit();
+			open.add(admission);
+			assertEquals(load, admissions.inFlight());
+			assertNull(admission.getTier());
+			admission.suggestions(session);
+			assertEquals(load <= 2 ? Tier.FULL : load <= 8 ? Tier.SHALLOW : Tier.GREEDY, admission.getTier(), "at " + load);
+		}
+		assertEquals(2, admissions.served(Tier.FULL));
+		assertEquals(6, admissions.served(Tier.SHALLOW));
+		assertEquals(2, admissions.served(Tier.GREEDY));
+
+		// and back, as requests finish
+		for (Admission admission : open) {
+			admission.close();
+			admission.close(); // counted out once
+		}
+		assertEquals(0, admissions.inFlight());
+		try (Admission admission = admissions.admit()) {
+			admission.suggestions(session);
+			assertEquals(Tier.FULL, admission.getTier());
+		}
+	}
+
+	@Test
+	void tiersFollowTheWait() throws InterruptedException {
+		AdmissionController admissions = new AdmissionController(engine, 1);
+		admissions.setFullWaitMillis(10);
+		admissions.setShallowWaitMillis(60_000);
+		assertEquals(Tier.SHALLOW, servedAfter(admissions, 20));
+
+		admissions.setShallowWaitMillis(10);
+		assertEquals(Tier.GREEDY, servedAfter(admissions, 20));
+
+		admissions.setFullWaitMillis(60_000);
+		admissions.setShallowWaitMillis(60_000);
+		assertEquals(Tier.FULL, servedAfter(admissions, 20));
+	}
+
+	private static Tier servedAfter(AdmissionController admissions, long waitMillis) throws InterruptedException {
+		try (Admission admission = admissions.admit()) {
+			Thread.sleep(waitMillis);
+			admission.suggestions(session);
+			return admission.getTier();
+		}
+	}
+}
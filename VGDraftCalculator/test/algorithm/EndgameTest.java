@@ -0,0 +1,124 @@
+package algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import data.Calculator;
+import data.Hero;
+import data.HeroMask;
+import data.HeroMatrix;
+import data.MatrixLoader;
+import data.Pick;
+import draft.DraftSession;
+import draft.DraftState;
+import draft.Format;
+
+class EndgameTest {
+
+	private static final double TOLERANCE = 1e-12;
+
+	private static HeroMatrix matrix;
+
+	@BeforeAll
+	static void load() {
+		matrix = MatrixLoader.loadRandom(8L);
+	}
+
+	/**
+	 * Plain minimax over every move, bans included: what the solver must agree with
+	 */
+	private static double minimax(Calculator calculator, DraftState state) {
+		if (state.isFull())
+			return calculator.scorePlusSynergy(state);
+		boolean maximizing = state.currentPhase().isBlue();
+		double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (Hero hero : HeroMask.asSet(state.poolMask())) {
+			double odds = minimax(calculator, state.whatIf(hero));
+			best = maximizing ? Math.max(best, odds) : Math.min(best, odds);
+		}
+		return best;
+	}
+
+	private static void assertClose(double expected, double actual, String message) {
+		assertEquals(expected, actual, TOLERANCE * Math.abs(expected), message);
+	}
+
+	@Test
+	void solvesLikeMinimax() {
+		Engine engine = new Engine(new Calculator(matrix));
+		Random rand = new Random(8L);
+		for (int trial = 0; trial < 20; trial++) {
+			Format format = Format.values()[trial % 2];
+			DraftState state = new DraftState(format);
+			int phase = format.size() - 1 - trial % 3;
+			while (state.currentPhaseNo() < phase)
+				state = state.whatIf(random(rand, state.poolMask()));
+			assertClose(minimax(engine.getCalculator(), state), engine.solveEndgame(state), state.toString());
+		}
+	}
+
+	/**
+	 * Bans deep in the draft, on a pool cut down so that plain minimax can still get through
+	 */
+	@Test
+	void solvesBansLikeMinimax() {
+		Engine engine = new Engine(new Calculator(matrix));
+		Random rand = new Random(16L);
+		for (int trial = 0; trial < 3; trial++) {
+			long pool = HeroMask.NONE, blue = HeroMask.NONE, red = HeroMask.NONE;
+			for (int i = 0; i < 8; i++)
+				pool |= random(rand, HeroMask.ALL & ~pool).mask();
+			for (int i = 0; i < 2; i++)
+				blue |= random(rand, HeroMask.ALL & ~(pool | blue)).mask();
+			red |= random(rand, HeroMask.ALL & ~(pool | blue)).mask();
+			long banned = HeroMask.ALL & ~(pool | blue | red);
+			// red picks, red and blue ban, then the last four picks
+			DraftState state = DraftState.of(Format.DOUBLE_BAN, blue, red, banned, 3);
+			assertClose(minimax(engine.getCalculator(), state), engine.solveEndgame(state), state.toString());
+		}
+	}
+
+	/**
+	 * Within the threshold, the search must solve every option at the root, not just those it would explore
+	 */
+	@Test
+	void adviceInTheEndgameIsExact() {
+		Engine engine = new Engine(new Calculator(matrix));
+		Calculator calculator = engine.getCalculator();
+		Random rand = new Random(24L);
+		for (int trial = 0; trial < 3; trial++) {
+			Format format = Format.values()[trial % 2];
+			DraftState state = new DraftState(format);
+			List<String> selected = new ArrayList<>();
+			while (state.remainingPhases() > engine.getEndgameThreshold()) {
+				Hero hero = random(rand, state.poolMask());
+				selected.add(hero.getName());
+				state = state.whatIf(hero);
+			}
+
+			List<Pick> picks = engine.suggestions(new DraftSession(state));
+			assertEquals(HeroMask.size(state.poolMask()), picks.size());
+			for (Pick pick : picks)
+				assertClose(minimax(calculator, state.whatIf(pick.getCandidate())), pick.getScore(),
+						pick.getCandidate().getName());
+
+			double best = minimax(calculator, state);
+			assertClose(best, picks.get(0).getScore(), state.toString());
+			Map<String, Integer> advice = engine.coachMeSenpai(format.name(), selected);
+			assertEquals((int) (best * 100), advice.get("odds"));
+			assertEquals(10, advice.get(picks.get(0).getCandidate().getName()));
+		}
+	}
+
+	private static Hero random(Random rand, long mask) {
+		List<Hero> heroes = new ArrayList<>(HeroMask.asSet(mask));
+		return heroes.get(rand.nextInt(heroes.size()));
+	}
+}
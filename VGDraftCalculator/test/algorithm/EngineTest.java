@@ -0,0 +1,367 @@
+package algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import data.Calculator;
+import data.Hero;
+import data.HeroMask;
+import data.HeroMatrix;
+import data.MatrixLoader;
+import data.Pick;
+import draft.DraftSession;
+import draft.DraftState;
+import draft.Format;
+
+class EngineTest {
+
+	private static HeroMatrix matrix;
+
+	@BeforeAll
+	static void load() throws Exception {
+		matrix = MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"));
+	}
+
+	/**
+	 * Before anyone is picked, every marginal score is NaN, so the greedy fill takes the first hero of the pool.
+	 * Pools go in ordinal order; the original {@code HashSet} order followed identity hashes, 
+	 * and changed with whatever else the JVM had hashed first.
+	 */
+	@Test
+	void emptyRostersHaveNoMarginalScore() {
+		Calculator calculator = new Calculator(matrix);
+		for (Hero hero : Hero.values())
+			assertTrue(Double.isNaN(calculator.marginalScore(hero, HeroMask.NONE, HeroMask.NONE)), hero.getName());
+	}
+
+	@Test
+	void openingAdviceIsPinned() {
+		Engine engine = new Engine(new Calculator(matrix));
+
+		Map<String, Integer> doubleBan = engine.coachMeSenpai("DOUBLE_BAN", Collections.emptyList());
+		assertEquals(54, doubleBan.get("odds"));
+		assertEquals(Set.of("Phinn"), ranked(doubleBan, 10));
+		assertEquals(Set.of("Blackfeather", "Catherine", "Flicker", "Fortress"), ranked(doubleBan, 9));
+
+		Map<String, Integer> singleBan = engine.coachMeSenpai("SINGLE_BAN", Collections.emptyList());
+		assertEquals(55, singleBan.get("odds"));
+		assertEquals(Set.of("Ardan", "Celeste", "Lyra"), ranked(singleBan, 10));
+		assertEquals(Set.of("Joule"), ranked(singleBan, 9));
+	}
+
+	@Test
+	void adviceIsRepeatable() {
+		List<String> draft = List.of("Krul", "Adagio", "Phinn");
+		Map<String, Integer> first = new Engine(new Calculator(matrix)).coachMeSenpai("DOUBLE_BAN", draft);
+		Engine sequential = new Engine(new Calculator(matrix));
+		sequential.setForkJoinPool(null);
+		assertEquals(first, sequential.coachMeSenpai("DOUBLE_BAN", draft));
+	}
+
+	@Test
+	void batchesContinueTheirPrefixes() {
+		List<List<String>> drafts = List.of(List.of("Krul", "Adagio"), List.of(), List.of("Krul"), 
+				List.of("krul", "Adagio"), List.of("Ardan"), List.of("Ardan", "Taka", "Joule"));
+		List<Map<String, Integer>> batch = new Engine(new Calculator(matrix)).coachAll("DOUBLE_BAN", drafts)
+				.collect(Collectors.toList());
+
+		// as sessions following the drafts through every requested prefix
+		Engine engine = new Engine(new Calculator(matrix));
+		assertEquals(engine.coachMeSenpai("DOUBLE_BAN", List.of()), batch.get(1));
+		engine.coachMeSenpai("k", "DOUBLE_BAN", List.of());
+		assertEquals(engine.coachMeSenpai("k", "DOUBLE_BAN", List.of("Krul")), batch.get(2));
+		assertEquals(engine.coachMeSenpai("k", "DOUBLE_BAN", List.of("Krul", "Adagio")), batch.get(0));
+		assertEquals(batch.get(0), batch.get(3));
+		engine.coachMeSenpai("a", "DOUBLE_BAN", List.of());
+		assertEquals(engine.coachMeSenpai("a", "DOUBLE_BAN", List.of("Ardan")), batch.get(4));
+		assertEquals(engine.coachMeSenpai("a", "DOUBLE_BAN", List.of("Ardan", "Taka", "Joule")), batch.get(5));
+	}
+
+	@Test
+	void interruptedSearchesAreCancelled() {
+		Engine engine = new Engine(new Calculator(matrix));
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(CancellationException.class, () -> engine.coachMeSenpai("DOUBLE_BAN", Collections.emptyList()));
+		} finally {
+			Thread.interrupted();
+		}
+		assertEquals(0, engine.getResultCache().size()); // no partial answer kept
+		assertEquals(54, engine.coachMeSenpai("DOUBLE_BAN", Collections.emptyList()).get("odds"));
+	}
+
+	/**
+	 * Nodes are expanded and refreshed from several threads; the tree must come out as it would on one, 
+	 * through a re-root and the dive that continues it
+	 */
+	@Test
+	void parallelTreesMatchSequentialOnes() {
+		Engine parallel = new Engine(new Calculator(matrix));
+		parallel.setForkJoinPool(new ForkJoinPool(4));
+		parallel.setParallelThreshold(1);
+		Engine sequential = new Engine(new Calculator(matrix));
+		sequential.setForkJoinPool(null);
+
+		EngineSession inParallel = parallel.openSession(Format.DOUBLE_BAN);
+		EngineSession inSequence = sequential.openSession(Format.DOUBLE_BAN);
+		for (String hero : List.of("Krul", "Adagio", "Phinn", "Taka", "Ardan")) {
+			List<Pick> expected = inSequence.suggestions(), actual = inParallel.suggestions();
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getCandidate(), actual.get(i).getCandidate(), hero + " " + i);
+				assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), hero + " " + i);
+			}
+			inSequence.pickOrBan(Hero.fromName(hero));
+			inParallel.pickOrBan(Hero.fromName(hero));
+		}
+		parallel.getForkJoinPool().shutdown();
+	}
+
+	/**
+	 * A search that started before a setting changed must not leave its answer behind for the new setting
+	 */
+	@Test
+	void answersFromOldSettingsAreNotCached() throws Exception {
+		Engine engine = new Engine(new Calculator(matrix));
+		engine.setAlgorithm(Algorithm.MONTE_CARLO);
+		engine.setBudget(Budget.millis(300));
+		DraftState empty = new DraftState(Format.DOUBLE_BAN);
+		Thread search = new Thread(() -> engine.coachMeSenpai("DOUBLE_BAN", Collections.emptyList()));
+		search.start();
+		Thread.sleep(100);
+		engine.setExploration(.5); // (under way: the answer comes a couple hundred ms from now)
+		search.join();
+		assertFalse(engine.hasAdvice(empty));
+
+		engine.coachMeSenpai("DOUBLE_BAN", Collections.emptyList());
+		assertTrue(engine.hasAdvice(empty));
+		engine.setEndgameThreshold(2);
+		assertFalse(engine.hasAdvice(empty));
+	}
+
+	@Test
+	void sessionsMoveToTheReloadedEngine() {
+		Engine engine = new Engine(new Calculator(matrix));
+		engine.setAlgorithm(Algorithm.ALPHA_BETA);
+		engine.setSearchDepth(1);
+		EngineSession older = engine.openSession(Format.DOUBLE_BAN);
+		older.pickOrBan(Hero.fromName("Krul"));
+		EngineSession newer = engine.openSession(Format.SINGLE_BAN);
+		newer.pickOrBan(null);
+
+		Engine next = engine.reloaded(matrix);
+		EngineSession moved = next.getSession(older.getId());
+		assertNotSame(older, moved);
+		assertEquals(older.getState(), moved.getState());
+		assertEquals(newer.getState(), next.getSession(newer.getId()).getState());
+		assertSame(older, engine.getSession(older.getId()));
+
+		// and it goes on from there
+		List<String> draft = List.of("Krul", "Adagio");
+		assertEquals(next.coachMeSenpai("DOUBLE_BAN", draft), next.coachMeSenpai(older.getId(), "DOUBLE_BAN", draft));
+		assertSame(moved, next.getSession(older.getId()));
+	}
+
+	/**
+	 * The greedy fill plays from running tallies; it must take the same path as rescoring every candidate in full, 
+	 * as the fill did before (kept here as it was), and so record each state along it
+	 */
+	@Test
+	void greedyFillMatchesTheFullRescore() {
+		Engine engine = new Engine(new Calculator(matrix));
+		Calculator calculator = engine.getCalculator();
+		Random random = new Random(10);
+		for (int trial = 0; trial < 500; trial++) {
+			Format format = Format.values()[trial % 2];
+			DraftState state = randomState(random, format, random.nextInt(format.size() + 1));
+			engine.getTranspositionTable().clear();
+			double odds = engine.fillAndScore(state);
+
+			DraftState filled = state;
+			while (!filled.isFull()) {
+				assertEquals(odds, engine.getTranspositionTable().get(filled), filled + " not on the path");
+				filled = filled.whatIf(fullRescoreSelections(calculator, filled).get(0).getCandidate());
+			}
+			double expected = calculator.scorePlusSynergy(filled);
+			assertEquals(expected, odds, Math.abs(expected) * 1e-12, state.toString());
+		}
+	}
+
+	private static List<Pick> fullRescoreSelections(Calculator calculator, DraftState state) {
+		switch (state.getStrategy()) {
+			default:
+			case PICK:
+				return fullRescorePicks(calculator, state.pickingTeam(), state.enemyTeam(), state.poolMask());
+			case DEFENSIVE_BAN:
+				return fullRescorePicks(calculator, state.enemyTeam(), state.pickingTeam(), state.poolMask());
+			case OFFENSIVE_BAN:
+				List<Pick> bestBans = new ArrayList<>();
+				for (long m = state.poolMask(); m != 0; m &= m - 1) {
+					Hero ban = HeroMask.first(m);
+					List<Pick> picks = fullRescorePicks(calculator, state.pickingTeam(), state.enemyTeam(), 
+							state.poolMask() & ~ban.mask());
+					bestBans.add(new Pick(ban, picks.get(1).getScore()));
+				}
+				Collections.sort(bestBans);
+				return bestBans;
+		}
+	}
+
+	private static List<Pick> fullRescorePicks(Calculator calculator, long pickingTeam, long enemyTeam, long pool) {
+		List<Pick> picks = new ArrayList<>();
+		for (long m = pool; m != 0; m &= m - 1) {
+			Hero hero = HeroMask.first(m);
+			picks.add(new Pick(hero, calculator.logMarginalScore(hero, pickingTeam, enemyTeam)));
+		}
+		Collections.sort(picks);
+		return picks;
+	}
+
+	/**
+	 * Cutoffs and move order only save work: every option scores as plain minimax over every move would
+	 */
+	@Test
+	void alphaBetaMatchesMinimax() {
+		Engine engine = new Engine(new Calculator(MatrixLoader.loadRandom(3)));
+		engine.setAlgorithm(Algorithm.ALPHA_BETA);
+		Random random = new Random(3);
+		for (int depth = 2; depth <= 3; depth++) {
+			engine.setSearchDepth(depth);
+			for (int trial = 0; trial < 4; trial++) {
+				Format format = Format.values()[trial % 2];
+				DraftState state = randomState(random, format, random.nextInt(format.size() - 1));
+				List<Pick> picks = engine.suggestions(new DraftSession(state));
+				assertEquals(HeroMask.size(state.poolMask()), picks.size());
+				for (Pick pick : picks)
+					assertEquals(minimax(engine, state.whatIf(pick.getCandidate()), depth - 1), pick.getScore(), 
+							state + " " + pick.getCandidate().getName());
+			}
+		}
+	}
+
+	private static double minimax(Engine engine, DraftState state, int depth) {
+		if (state.isFull())
+			return engine.getCalculator().scorePlusSynergy(state);
+		if (depth <= 0)
+			return engine.fillAndScore(state);
+		boolean maximizing = state.currentPhase().isBlue();
+		double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (Hero hero : HeroMask.asSet(state.poolMask())) {
+			double odds = minimax(engine, state.whatIf(hero), depth - 1);
+			best = maximizing ? Math.max(best, odds) : Math.min(best, odds);
+		}
+		return best;
+	}
+
+	/**
+	 * Whatever the deadline cuts off, the answer is the last iteration that finished: alpha-beta's at that depth
+	 */
+	@Test
+	void iterativeDeepeningKeepsItsDeepestCompleteIteration() {
+		Engine engine = new Engine(new Calculator(matrix));
+		DraftSession empty = new DraftSession(Format.DOUBLE_BAN);
+		engine.search(empty, Algorithm.ITERATIVE_DEEPENING, Budget.millis(100)); // warm up
+
+		for (long millis : new long[] { 20, 200 }) {
+			long start = System.nanoTime();
+			SearchResult result = engine.search(empty, Algorithm.ITERATIVE_DEEPENING, Budget.millis(millis));
+			long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue(took < millis + 100, "overran " + millis + "ms, taking " + took + "ms");
+			assertDeepenedTo(engine, empty, result, result.getDepth());
+		}
+
+		// an iteration count caps the depth, however long the time allowed
+		SearchResult capped = engine.search(empty, Algorithm.ITERATIVE_DEEPENING, Budget.millis(60_000).andIterations(2));
+		assertDeepenedTo(engine, empty, capped, 2);
+		assertFalse(capped.isComplete());
+
+		// and nothing is deeper than the end of the draft
+		DraftSession late = new DraftSession(randomState(new Random(6), Format.DOUBLE_BAN, 7));
+		SearchResult all = engine.search(late, Algorithm.ITERATIVE_DEEPENING, Budget.millis(60_000));
+		assertDeepenedTo(engine, late, all, 3);
+		assertTrue(all.isComplete());
+	}
+
+	private static void assertDeepenedTo(Engine engine, DraftSession session, SearchResult result, int depth) {
+		assertTrue(depth >= 1);
+		assertEquals(depth, result.getDepth());
+		assertEquals(depth, result.getStats().getDepth());
+		engine.setSearchDepth(depth);
+		assertEquals(scores(engine.suggestions(session, Algorithm.ALPHA_BETA)), scores(result.getPicks()));
+	}
+
+	/**
+	 * Bounds only skip options that could not change the outcome, so at equal depth the scores are alpha-beta's; 
+	 * with the endgame solver on, up to its rounding.
+	 */
+	@Test
+	void branchAndBoundMatchesAlphaBeta() {
+		Random random = new Random(13);
+		for (int endgameThreshold : new int[] { 0, 3 }) {
+			for (int depth = 2; depth <= 3; depth++) {
+				Engine engine = new Engine(new Calculator(matrix));
+				engine.setSearchDepth(depth);
+				engine.setEndgameThreshold(endgameThreshold);
+				for (int trial = 0; trial < 4; trial++) {
+					Format format = Format.values()[trial % 2];
+					DraftSession session = new DraftSession(randomState(random, format, format.size() - 3 - trial % 3));
+					Map<Hero, Double> expected = scores(engine.suggestions(session, Algorithm.ALPHA_BETA));
+					Map<Hero, Double> actual = scores(engine.suggestions(session, Algorithm.BRANCH_AND_BOUND));
+					assertEquals(expected.keySet(), actual.keySet());
+					for (Hero hero : expected.keySet())
+						assertEquals(expected.get(hero), actual.get(hero), endgameThreshold == 0 ? 0.0 : 1e-12, 
+								session.getState() + " " + hero.getName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the state after random moves up to the given phase
+	 */
+	private static DraftState randomState(Random random, Format format, int phase) {
+		DraftState state = new DraftState(format);
+		while (state.currentPhaseNo() < phase) {
+			List<Hero> pool = new ArrayList<>(HeroMask.asSet(state.poolMask()));
+			state = state.whatIf(pool.get(random.nextInt(pool.size())));
+		}
+		return state;
+	}
+
+	private static Map<Hero, Double> scores(List<Pick> picks) {
+		Map<Hero, Double> scores = new HashMap<>();
+		for (Pick pick : picks)
+			scores.put(pick.getCandidate(), pick.getScore());
+		return scores;
+	}
+
+	private static Set<String> ranked(Map<String, Integer> advice, int rank) {
+		Set<String> heroes = new TreeSet<>();
+		advice.forEach((hero, r) -> {
+			if (r == rank && !hero.equals("odds"))
+				heroes.add(hero);
+		});
+		return heroes;
+	}
+}
@@ -0,0 +1,88 @@
+package algorithm;
+
+import static algorithm.LatencyHistogram.bucket;
+import static algorithm.LatencyHistogram.lowerBound;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+	@Test
+	void exactBelowEightMicros() {
+		for (long micros = 0; micros < 8; micros++) {
+			assertEquals(micros, bucket(micros));
+			assertEquals(micros, lowerBound((int) micros));
+		}
+	}
+
+	@Test
+	void eightPerPowerOfTwoAfter() {
+		assertEquals(8, bucket(8));
+		assertEquals(15, bucket(15));
+		assertEquals(16, bucket(16));
+		assertEquals(16, bucket(17)); // two microseconds wide from here
+		assertEquals(17, bucket(18));
+		assertEquals(8, lowerBound(8));
+		assertEquals(15, lowerBound(15));
+		assertEquals(16, lowerBound(16));
+		assertEquals(18, lowerBound(17));
+		assertEquals(32, lowerBound(24));
+	}
+
+	@Test
+	void theLastPowerOfTwoTakesTheRest() {
+		int last = bucket(Long.MAX_VALUE / 1000);
+		assertEquals(last - 7, bucket(1L << 40));
+		assertEquals(1L << 40, lowerBound(last - 7));
+		assertEquals(last, bucket((1L << 41) - 1));
+		assertEquals(last, bucket(1L << 41));
+		assertEquals(last - 1, bucket(lowerBound(last) - 1));
+	}
+
+	@Test
+	void bucketsTileTheRange() {
+		int last = bucket(Long.MAX_VALUE / 1000);
+		for (int b = 0; b < last; b++) {
+			assertEquals(b, bucket(lowerBound(b)));
+			assertEquals(b, bucket(lowerBound(b + 1) - 1));
+			assertTrue(lowerBound(b + 1) - lowerBound(b) <= Math.max(1, lowerBound(b) / 8), "bucket " + b);
+		}
+	}
+
+	@Test
+	void percentilesAreBucketUpperEnds() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentileMillis(.5));
+		for (long micros = 1; micros <= 1000; micros++)
+			histogram.record(micros * 1000);
+		assertEquals(1000, histogram.count());
+		assertEquals(.5005, histogram.meanMillis(), 1e-12);
+		assertEquals(1, histogram.maxMillis());
+
+		// 500 us falls in the 32 us wide bucket from 480; 990 us in the 64 us one from 960
+		assertEquals(.512, histogram.percentileMillis(.5));
+		assertEquals(1.024, histogram.percentileMillis(.99));
+		assertEquals(.004, histogram.percentileMillis(.003)); // 3 us has a bucket of its own, reported by its upper end
+		Random random = new Random(22);
+		for (int i = 0; i < 100; i++) {
+			double quantile = random.nextDouble();
+			double exact = Math.ceil(quantile * 1000) / 1000;
+			double reported = histogram.percentileMillis(quantile);
+			assertTrue(reported > exact && reported <= exact * 1.125 + .001, quantile + ": " + reported);
+		}
+	}
+
+	@Test
+	void overlongTimesReportTheMax() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE / 1e6, histogram.percentileMillis(.99));
+		histogram.reset();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.percentileMillis(.99));
+	}
+}
@@ -0,0 +1,74 @@
+package algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import data.Calculator;
+import data.Hero;
+import data.HeroMask;
+import data.MatrixLoader;
+import data.Pick;
+import draft.DraftState;
+import draft.Format;
+
+class MonteCarloSearchTest {
+
+	private static final long BUDGET_MILLIS = 100;
+	private static final long SLACK_MILLIS = 100; // the last iteration, and a busy machine
+
+	private static Engine engine;
+
+	@BeforeAll
+	static void load() throws Exception {
+		engine = new Engine(new Calculator(MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"))));
+	}
+
+	private static List<Pick> search(DraftState state, Budget budget) {
+		return new MonteCarloSearch(engine, engine.getExploration()).search(state, budget);
+	}
+
+	@Test
+	void stopsWhenTheTimeIsUp() {
+		DraftState empty = new DraftState(Format.DOUBLE_BAN);
+		search(empty, Budget.millis(BUDGET_MILLIS)); // warm up
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			search(empty, Budget.millis(BUDGET_MILLIS));
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue(millis >= BUDGET_MILLIS, "stopped early, after " + millis + "ms");
+			assertTrue(millis < BUDGET_MILLIS + SLACK_MILLIS, "overran, taking " + millis + "ms");
+		}
+	}
+
+	@Test
+	void suggestsEachHeroInThePoolOnce() {
+		Random random = new Random(5);
+		for (Format format : Format.values()) {
+			DraftState state = new DraftState(format);
+			while (!state.isFull()) {
+				List<Pick> picks = search(state, Budget.iterations(200));
+				Set<Hero> suggested = new HashSet<>();
+				for (Pick pick : picks) {
+					assertTrue(HeroMask.contains(state.poolMask(), pick.getCandidate()), state + ": " + pick);
+					assertTrue(suggested.add(pick.getCandidate()), state + ": " + pick + " twice");
+				}
+				assertEquals(HeroMask.asSet(state.poolMask()), suggested);
+
+				List<Hero> pool = new ArrayList<>(suggested);
+				state = state.whatIf(pool.get(random.nextInt(pool.size())));
+			}
+			assertTrue(search(state, Budget.iterations(200)).isEmpty());
+		}
+	}
+}
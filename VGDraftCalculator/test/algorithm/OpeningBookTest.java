@@ -0,0 +1,110 @@
+package algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import data.Calculator;
+import data.Hero;
+import data.HeroMatrix;
+import data.MatrixLoader;
+import data.Pick;
+import draft.DraftState;
+import draft.Format;
+
+class OpeningBookTest {
+
+	private static HeroMatrix matrix;
+	private static OpeningBook book;
+
+	@TempDir
+	Path dir;
+
+	@BeforeAll
+	static void build() throws Exception {
+		matrix = MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"));
+		book = OpeningBook.build(engine(1, 2), 2, Format.SINGLE_BAN);
+	}
+
+	/**
+	 * A quick engine to build with: alpha-beta, searching as deep as given
+	 */
+	private static Engine engine(int searchDepth, int endgameThreshold) {
+		Engine engine = new Engine(new Calculator(matrix));
+		engine.setAlgorithm(Algorithm.ALPHA_BETA);
+		engine.setSearchDepth(searchDepth);
+		engine.setEndgameThreshold(endgameThreshold);
+		return engine;
+	}
+
+	@Test
+	void coversEveryPositionBeforeThePhase() {
+		// the empty draft, then every ban and the skipped one
+		assertEquals(1 + Hero.values().length + 1, book.size());
+		assertNull(book.get(new DraftState(Format.SINGLE_BAN).whatIf(Hero.values()[0]).whatIf(Hero.values()[1])));
+	}
+
+	@Test
+	void roundTrips() throws IOException {
+		Path file = dir.resolve("book.bin");
+		book.write(file);
+		OpeningBook read = OpeningBook.read(file);
+
+		assertEquals(book.getAlgorithm(), read.getAlgorithm());
+		assertEquals(book.getFingerprint(), read.getFingerprint());
+		assertEquals(1, read.getSearchDepth());
+		assertEquals(2, read.getEndgameThreshold());
+		assertEquals(book.size(), read.size());
+		assertTrue(read.isFor(matrix));
+
+		DraftState empty = new DraftState(Format.SINGLE_BAN);
+		for (DraftState state : List.of(empty, empty.whatIf(Hero.values()[3]), empty.whatIf(null))) {
+			List<Pick> expected = book.get(state), actual = read.get(state);
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getCandidate(), actual.get(i).getCandidate());
+				assertEquals(expected.get(i).getScore(), actual.get(i).getScore());
+			}
+		}
+	}
+
+	@Test
+	void otherSettingsAreRejected() {
+		assertTrue(book.isSearchedLike(engine(1, 2)));
+		assertFalse(book.isSearchedLike(engine(2, 2)));
+		assertFalse(book.isSearchedLike(engine(1, 3)));
+
+		engine(1, 2).setOpeningBook(book);
+		assertThrows(IllegalArgumentException.class, () -> engine(2, 2).setOpeningBook(book));
+		assertThrows(IllegalArgumentException.class, () -> engine(1, 0).setOpeningBook(book));
+	}
+
+	@Test
+	void isNotConsultedOnceTheSettingsChange() {
+		Engine engine = engine(1, 2);
+		engine.setOpeningBook(book);
+		DraftState empty = new DraftState(Format.SINGLE_BAN);
+		assertTrue(engine.inBook(empty));
+		engine.setSearchDepth(2);
+		assertFalse(engine.inBook(empty));
+	}
+
+	@Test
+	void otherFilesAreRejected() throws IOException {
+		Path file = dir.resolve("other.bin");
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		assertThrows(IOException.class, () -> OpeningBook.read(file));
+	}
+}
@@ -0,0 +1,79 @@
+package algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import data.Hero;
+import draft.DraftState;
+import draft.Format;
+
+class ResultCacheTest {
+
+	private static final DraftState EMPTY = new DraftState(Format.DOUBLE_BAN);
+	private static final DraftState ONE = EMPTY.whatIf(Hero.KRUL);
+	private static final DraftState TWO = ONE.whatIf(Hero.TAKA);
+
+	@Test
+	void storesAndCounts() {
+		ResultCache<String> cache = new ResultCache<>(4);
+		assertNull(cache.get(EMPTY, 1));
+		cache.put(EMPTY, 1, "empty");
+		assertEquals("empty", cache.get(EMPTY, 1));
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.misses());
+		assertEquals(.5, cache.hitRate());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		ResultCache<String> cache = new ResultCache<>(2);
+		cache.put(EMPTY, 1, "empty");
+		cache.put(ONE, 1, "one");
+		cache.get(EMPTY, 1);
+		cache.put(TWO, 1, "two");
+
+		assertTrue(cache.contains(EMPTY, 1));
+		assertFalse(cache.contains(ONE, 1));
+		assertTrue(cache.contains(TWO, 1));
+		assertEquals(1, cache.evictions());
+		assertThrows(IllegalArgumentException.class, () -> new ResultCache<String>(0));
+	}
+
+	@Test
+	void newerVersionDropsEverything() {
+		ResultCache<String> cache = new ResultCache<>(4);
+		cache.put(EMPTY, 1, "empty");
+		cache.put(ONE, 1, "one");
+		assertNull(cache.get(EMPTY, 2));
+		assertEquals(0, cache.size());
+		assertFalse(cache.contains(ONE, 1));
+	}
+
+	@Test
+	void olderVersionChangesNothing() {
+		ResultCache<String> cache = new ResultCache<>(4);
+		cache.put(EMPTY, 2, "fresh");
+		cache.put(ONE, 1, "stale"); // e.g. from a search that started before the matrix changed
+		assertEquals(1, cache.size());
+		assertEquals("fresh", cache.get(EMPTY, 2));
+		assertNull(cache.get(ONE, 2));
+		assertNull(cache.get(EMPTY, 1));
+		assertFalse(cache.contains(EMPTY, 1));
+		assertEquals("fresh", cache.get(EMPTY, 2));
+	}
+
+	@Test
+	void clearKeepsVersion() {
+		ResultCache<String> cache = new ResultCache<>(4);
+		cache.put(EMPTY, 3, "empty");
+		cache.clear();
+		assertEquals(0, cache.size());
+		cache.put(ONE, 2, "stale");
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,103 @@
+package algorithm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import data.Hero;
+import data.HeroMask;
+import draft.DraftState;
+import draft.Format;
+
+class TranspositionTableTest {
+
+	private static final DraftState EMPTY = new DraftState(Format.DOUBLE_BAN);
+
+	/**
+	 * Odds to store for the state: any lookup that finds it must get these back
+	 */
+	private static double odds(DraftState state) {
+		return (state.zobrist() >>> 11) / (double) (1L << 53);
+	}
+
+	@Test
+	void storesAndReplaces() {
+		TranspositionTable table = new TranspositionTable(16, TranspositionTable.Eviction.DEPTH_PREFERRED);
+		DraftState one = EMPTY.whatIf(Hero.KRUL);
+		assertNull(table.get(one));
+		table.put(one, .25);
+		table.put(one, .75);
+		assertEquals(.75, table.get(one));
+		assertNull(table.get(EMPTY));
+		assertEquals(1, table.hits());
+		assertEquals(2, table.misses());
+	}
+
+	@Test
+	void leastRecentlyUsedKeepsWhatWasRead() {
+		TranspositionTable table = new TranspositionTable(4, TranspositionTable.Eviction.LEAST_RECENTLY_USED);
+		List<DraftState> states = new ArrayList<>();
+		for (Hero hero : Hero.values())
+			states.add(EMPTY.whatIf(hero));
+		for (int i = 0; i < 4; i++)
+			table.put(states.get(i), odds(states.get(i)));
+		table.get(states.get(0));
+		table.put(states.get(4), odds(states.get(4))); // one bucket of four: out goes the least recent, the second
+		assertEquals(odds(states.get(0)), table.get(states.get(0)));
+		assertNull(table.get(states.get(1)));
+	}
+
+	/**
+	 * Lookups take no lock: while other threads store and evict over a tiny table,
+	 * whatever a lookup finds must be the odds stored for the very state it asked for
+	 */
+	@Test
+	void lookupsRacingStoresFindOnlyTheirOwnState() throws Exception {
+		for (TranspositionTable.Eviction eviction : TranspositionTable.Eviction.values()) {
+			TranspositionTable table = new TranspositionTable(16, eviction);
+			ExecutorService threads = Executors.newFixedThreadPool(4);
+			try {
+				List<Future<Long>> workers = new ArrayList<>();
+				for (int t = 0; t < 4; t++) {
+					long seed = t;
+					workers.add(threads.submit(() -> {
+						Random random = new Random(seed);
+						long found = 0;
+						for (int i = 0; i < 50_000; i++) {
+							DraftState state = EMPTY;
+							for (int phase = random.nextInt(4); phase > 0; phase--) {
+								List<Hero> pool = new ArrayList<>(HeroMask.asSet(state.poolMask()));
+								state = state.whatIf(pool.get(random.nextInt(pool.size())));
+							}
+							if (random.nextBoolean()) {
+								table.put(state, odds(state));
+							} else {
+								Double odds = table.get(state);
+								if (odds != null) {
+									assertEquals(odds(state), odds, state.toString());
+									found++;
+								}
+							}
+						}
+						return found;
+					}));
+				}
+				long found = 0;
+				for (Future<Long> worker : workers)
+					found += worker.get();
+				assertTrue(found > 0, eviction + ": nothing found");
+			} finally {
+				threads.shutdown();
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import draft.DraftState;
+import draft.DraftTally;
+import draft.Format;
+
+/**
+ * The log-space scoring against the original formulas, which are kept here as they were: 
+ * geometric means and weighted powers of the odds.
+ */
+class CalculatorTest {
+
+	private static final double TOLERANCE = 1e-12; // relative
+	private static final int DRAFTS = 500;
+
+	private static HeroMatrix matrix;
+	private static Calculator calculator;
+
+	@BeforeAll
+	static void load() throws Exception {
+		matrix = MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"));
+		calculator = new Calculator(matrix);
+	}
+
+	@Test
+	void scoresMatchTheOriginal() {
+		Random random = new Random(1);
+		for (int i = 0; i < DRAFTS; i++) {
+			DraftState state = randomDraft(random);
+			long blue = state.blueMask(), red = state.redMask();
+			for (Hero hero : Hero.values()) {
+				assertClose(geoMean(red, enemy -> matrix.get(hero, enemy, false)), calculator.score(hero, red));
+				assertClose(geoMean(blue, ally -> matrix.get(hero, ally, true)), calculator.synergy(hero, blue));
+			}
+			assertClose(scorePlusSynergy(blue, red), calculator.scorePlusSynergy(blue, red));
+			assertClose(scorePlusSynergy(red, blue), calculator.scorePlusSynergy(red, blue));
+		}
+	}
+
+	@Test
+	void marginalScoresMatchTheOriginal() {
+		Random random = new Random(2);
+		for (int i = 0; i < DRAFTS; i++) {
+			DraftState state = randomDraft(random);
+			long blue = state.blueMask(), red = state.redMask();
+			for (long pool = state.poolMask(); pool != 0; pool &= pool - 1) {
+				Hero hero = HeroMask.first(pool);
+				assertClose(marginalScore(hero, blue, red), calculator.marginalScore(hero, blue, red));
+				assertClose(marginalScore(hero, red, blue), calculator.marginalScore(hero, red, blue));
+			}
+		}
+	}
+
+	@Test
+	void talliesMatchTheOriginal() {
+		Random random = new Random(3);
+		DraftTally tally = new DraftTally(matrix);
+		for (int i = 0; i < DRAFTS; i++) {
+			DraftState state = randomDraft(random);
+			long blue = state.blueMask(), red = state.redMask();
+			tally.reset(state);
+			assertClose(scorePlusSynergy(blue, red), calculator.scorePlusSynergy(tally));
+			for (long pool = state.poolMask(); pool != 0; pool &= pool - 1) {
+				Hero hero = HeroMask.first(pool);
+				for (boolean forBlue : new boolean[] {true, false}) {
+					long us = forBlue ? blue : red, them = forBlue ? red : blue;
+					assertClose(Math.log(marginalScore(hero, us, them)), calculator.logMarginalScore(hero, tally, forBlue));
+					double after = forBlue ? scorePlusSynergy(blue | hero.mask(), red) : scorePlusSynergy(blue, red | hero.mask());
+					assertClose(Math.log(after), calculator.logScorePlusSynergy(tally, hero, forBlue));
+				}
+			}
+		}
+	}
+
+	/**
+	 * No completion of a draft may score outside its bounds, on the real data or on random data
+	 */
+	@Test
+	void boundsHoldOnRandomCompletions() {
+		Random random = new Random(4);
+		for (Calculator calculator : new Calculator[] { CalculatorTest.calculator, new Calculator(MatrixLoader.loadRandom(4)) }) {
+			for (int i = 0; i < DRAFTS; i++) {
+				DraftState state = randomDraft(random);
+				double upper = calculator.upperBound(state), lower = calculator.lowerBound(state);
+				assertTrue(lower <= upper * (1 + TOLERANCE), state + ": " + lower + " > " + upper);
+				for (int j = 0; j < 20; j++) {
+					DraftState full = state;
+					while (!full.isFull())
+						full = full.whatIf(randomHero(random, full.poolMask()));
+					double score = calculator.scorePlusSynergy(full);
+					assertTrue(score <= upper * (1 + TOLERANCE), full + ": " + score + " above " + upper);
+					assertTrue(score >= lower * (1 - TOLERANCE), full + ": " + score + " below " + lower);
+				}
+			}
+		}
+	}
+
+	@Test
+	void emptyRostersAreEven() {
+		long some = Hero.fromOrdinal(0).mask() | Hero.fromOrdinal(1).mask();
+		assertEquals(.5, calculator.scorePlusSynergy(HeroMask.NONE, HeroMask.NONE));
+		assertEquals(.5, calculator.scorePlusSynergy(some, HeroMask.NONE));
+		assertEquals(.5, calculator.scorePlusSynergy(HeroMask.NONE, some));
+		assertEquals(.5, calculator.score(Hero.fromOrdinal(2), HeroMask.NONE), TOLERANCE);
+		assertEquals(.5, calculator.synergy(Hero.fromOrdinal(2), HeroMask.NONE), TOLERANCE);
+	}
+
+	/**
+	 * @return a draft some random way through a random format
+	 */
+	private static DraftState randomDraft(Random random) {
+		Format format = Format.values()[random.nextInt(Format.values().length)];
+		DraftState state = new DraftState(format);
+		int phases = random.nextInt(format.size() + 1);
+		for (int i = 0; i < phases; i++)
+			state = state.whatIf(randomHero(random, state.poolMask()));
+		return state;
+	}
+
+	private static Hero randomHero(Random random, long mask) {
+		List<Hero> pool = new ArrayList<>();
+		for (long m = mask; m != 0; m &= m - 1)
+			pool.add(HeroMask.first(m));
+		return pool.get(random.nextInt(pool.size()));
+	}
+
+	private static void assertClose(double expected, double actual) {
+		if (Double.isNaN(expected)) {
+			assertTrue(Double.isNaN(actual), "expected NaN but was " + actual);
+			return;
+		}
+		assertEquals(expected, actual, Math.abs(expected) * TOLERANCE);
+	}
+
+	//////////////////
+	//   Original   //
+	//////////////////
+
+	private static double geoMean(long heroes, ToDoubleFunction<Hero> scorer) {
+		if (heroes == HeroMask.NONE)
+			return .5;
+		double score = 1.0;
+		for (long m = heroes; m != 0; m &= m - 1)
+			score *= scorer.applyAsDouble(HeroMask.first(m));
+		return Math.pow(score, 1 / (double) HeroMask.size(heroes));
+	}
+
+	private static double synergy(long team) {
+		return geoMean(team, hero -> geoMean(team, partner -> matrix.get(hero, partner, true)));
+	}
+
+	private static double scorePlusSynergy(long us, long them) {
+		if (us == HeroMask.NONE || them == HeroMask.NONE)
+			return .5;
+		double score = geoMean(us, hero -> geoMean(them, enemy -> matrix.get(hero, enemy, false)));
+		double fightWeight = HeroMask.size(us) + HeroMask.size(them);
+		double usSyn = synergy(us), themSyn = synergy(them);
+		double usSynergy = (usSyn * (1 - themSyn)) / (usSyn * (1 - themSyn) + themSyn * (1 - usSyn));
+		double usPairs = HeroMask.size(us) * (HeroMask.size(us) - 1);
+		double themPairs = HeroMask.size(them) * (HeroMask.size(them) - 1);
+		double synergyWeight = 3 * (usPairs + themPairs);
+		return Math.pow(Math.pow(score, fightWeight) * Math.pow(usSynergy, synergyWeight), 1 / (fightWeight + synergyWeight));
+	}
+
+	private static double marginalScore(Hero hero, long us, long them) {
+		double synergy = geoMean(us, partner -> matrix.get(hero, partner, true));
+		double score = geoMean(them, enemy -> matrix.get(hero, enemy, false));
+		int usSize = HeroMask.size(us), themSize = HeroMask.size(them);
+		return Math.pow(Math.pow(synergy, usSize) * Math.pow(score, 3 * themSize), 1 / (double) (usSize + 3 * themSize));
+	}
+}
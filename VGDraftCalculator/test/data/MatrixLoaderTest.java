@@ -0,0 +1,258 @@
+package data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+class MatrixLoaderTest {
+
+	private static HeroMatrix matrix;
+
+	@TempDir
+	Path dir;
+
+	@BeforeAll
+	static void load() throws Exception {
+		matrix = MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"));
+	}
+
+	@Test
+	void compiledRoundTrips() throws IOException {
+		for (boolean indexes : new boolean[] {true, false}) {
+			Path file = dir.resolve("matrix-" + indexes + ".bin");
+			MatrixLoader.compile(matrix, file, indexes);
+			assertSame(matrix, MatrixLoader.loadCompiled(file));
+		}
+	}
+
+	@Test
+	void randomDataRoundTripsToo() throws IOException {
+		HeroMatrix random = MatrixLoader.loadRandom(42);
+		Path file = dir.resolve("random.bin");
+		MatrixLoader.compile(random, file, true);
+		assertSame(random, MatrixLoader.loadCompiled(file));
+	}
+
+	@Test
+	void damagedFilesAreRejected() throws IOException {
+		Path file = dir.resolve("matrix.bin");
+		MatrixLoader.compile(matrix, file, true);
+		byte[] compiled = Files.readAllBytes(file);
+
+		byte[] truncated = Arrays.copyOf(compiled, compiled.length / 2);
+		assertRejected(truncated);
+
+		byte[] flipped = compiled.clone();
+		flipped[compiled.length / 3] ^= 1; // within the odds: the fingerprint no longer matches
+		assertRejected(flipped);
+
+		byte[] other = compiled.clone();
+		other[0] = 'X';
+		assertRejected(other);
+	}
+
+	/**
+	 * Both files are read at once, so run several loads together too: each must match the old DOM loader
+	 */
+	@Test
+	void matchesTheDomLoader() throws Exception {
+		HeroMatrix expected = domLoad(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"));
+		assertSameOdds(expected, matrix);
+
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<HeroMatrix>> loads = new ArrayList<>();
+			for (int i = 0; i < 8; i++)
+				loads.add(threads.submit(() -> MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"))));
+			for (Future<HeroMatrix> load : loads)
+				assertSameOdds(expected, load.get());
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	@Test
+	void missingPairsAreRejected() throws Exception {
+		assertRejected("VG8VersusMatrix.xml", "<beatKoshka>41</beatKoshka>", "", "no beatKoshka");
+		assertRejected("VG8SynergyMatrix.xml", "<winswithKoshka>29</winswithKoshka>", "", "no winswithKoshka");
+	}
+
+	@Test
+	void repeatedPairsAreRejected() throws Exception {
+		assertRejected("VG8VersusMatrix.xml", "<beatKoshka>41</beatKoshka>", 
+				"<beatKoshka>41</beatKoshka><beatKoshka>41</beatKoshka>", "beatKoshka twice");
+		assertRejected("VG8SynergyMatrix.xml", "<winswithKoshka>29</winswithKoshka>", 
+				"<winswithKoshka>29</winswithKoshka><winswithKoshka>29</winswithKoshka>", "winswithKoshka twice");
+	}
+
+	/**
+	 * Loads the pair of files with the named one edited (its first match only), expecting it to be turned down
+	 */
+	private void assertRejected(String name, String target, String replacement, String message) throws IOException {
+		Path versus = copy("VG8VersusMatrix.xml"), synergy = copy("VG8SynergyMatrix.xml");
+		Path edited = name.equals("VG8VersusMatrix.xml") ? versus : synergy;
+		String xml = Files.readString(edited);
+		assertTrue(xml.contains(target), target);
+		Files.writeString(edited, xml.replaceFirst(Pattern.quote(target), replacement));
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> MatrixLoader.load(versus, synergy));
+		assertTrue(e.getMessage().contains(message), e.getMessage());
+	}
+
+	private Path copy(String resource) throws IOException {
+		Path file = dir.resolve(resource);
+		try (InputStream in = MatrixLoader.class.getResourceAsStream(resource)) {
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	private void assertRejected(byte[] content) throws IOException {
+		Path file = dir.resolve("damaged.bin");
+		Files.write(file, content);
+		assertThrows(IOException.class, () -> MatrixLoader.loadCompiled(file));
+	}
+
+	private static void assertSameOdds(HeroMatrix expected, HeroMatrix actual) {
+		for (boolean withOrAgainst : new boolean[] {false, true})
+			for (Hero hero : Hero.values())
+				for (Hero other : Hero.values())
+					assertEquals(expected.get(hero, other, withOrAgainst), actual.get(hero, other, withOrAgainst), 
+							hero.getName() + (withOrAgainst ? " with " : " against ") + other.getName());
+	}
+
+	private static void assertSame(HeroMatrix expected, HeroMatrix actual) {
+		assertEquals(expected.fingerprint(), actual.fingerprint());
+		for (int i = 0; i < HeroMatrix.size(); i++) {
+			assertEquals(expected.oddsAt(i), actual.oddsAt(i));
+			assertEquals(expected.logOddsAt(i), actual.logOddsAt(i));
+		}
+		for (boolean withOrAgainst : new boolean[] {false, true})
+			for (Hero hero : Hero.values()) {
+				Ranking ranking = expected.ranking(hero, withOrAgainst), read = actual.ranking(hero, withOrAgainst);
+				for (int rank = 0; rank < ranking.size(); rank++)
+					assertEquals(ranking.get(rank), read.get(rank));
+			}
+	}
+
+	//////////////////
+	//   Original   //
+	//////////////////
+
+	/**
+	 * The DOM loader as it was, but for its commented-out lines
+	 */
+	private static HeroMatrix domLoad(Path vsXmlFile, Path synergyXmlFile) throws Exception {
+		InputStream vsFile = MatrixLoader.class.getResourceAsStream(vsXmlFile.toString());
+		InputStream synergyFile = MatrixLoader.class.getResourceAsStream(synergyXmlFile.toString());
+
+		HashMap<Hero, HashMap<Hero, Integer>> vsMap = new HashMap<>();
+		HashMap<Hero, HashMap<Hero, Integer>> synMap = new HashMap<>();
+		HashMap<Hero, HashMap<Hero, Integer>> withMap = new HashMap<>();
+		for (Hero h : Hero.values()) {
+			vsMap.put(h, new HashMap<Hero,Integer>());
+			synMap.put(h, new HashMap<Hero,Integer>());
+			withMap.put(h, new HashMap<Hero,Integer>());
+		}
+
+		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+		DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+		DocumentBuilder dBuilder2 = dbFactory.newDocumentBuilder();
+		Document vsDoc = dBuilder.parse(vsFile);
+		Document synDoc = dBuilder2.parse(synergyFile);
+
+		NodeList nList = vsDoc.getElementsByTagName("ROW");
+		NodeList nList2 = synDoc.getElementsByTagName("ROW");
+
+		for (int i = 0; i < nList.getLength(); i++) {
+			Node rowNode = nList.item(i);
+			if (rowNode.getNodeType() == Node.ELEMENT_NODE) {
+				Element eElement = (Element) rowNode;
+				NodeList elements = eElement.getElementsByTagName("*");
+				String heroName = elements.item(0).getTextContent();
+				Hero hero = Hero.fromName(heroName);
+				for (int j=0; j<elements.getLength(); j++) {
+					Node column = elements.item(j);
+					String columnName = column.getNodeName();
+					if (columnName.startsWith("beat")) {
+						Hero opponent = Hero.fromName(columnName.substring(4));
+						String textContent = column.getTextContent();
+						int value = textContent.equals("NULL") ? 0 : Integer.parseInt(textContent);
+						// WEIGHTING WIN-RATES:
+						value += 10;
+						vsMap.get(hero).put(opponent, value);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < nList2.getLength(); i++) {
+			Node rowNode = nList2.item(i);
+			if (rowNode.getNodeType() == Node.ELEMENT_NODE) {
+				Element eElement = (Element) rowNode;
+				NodeList elements = eElement.getElementsByTagName("*");
+				String heroName = elements.item(0).getTextContent();
+				Hero hero = Hero.fromName(heroName);
+				for (int j=0; j<elements.getLength(); j++) {
+					Node column = elements.item(j);
+					String columnName = column.getNodeName();
+					if (columnName.startsWith("winswith")) {
+						Hero partner = Hero.fromName(columnName.substring(8));
+						String textContent = column.getTextContent();
+						int value = textContent.equals("NULL") ? 0 : Integer.parseInt(textContent);
+						// WEIGHTING WIN-RATES:
+						value += 5;
+						synMap.get(hero).put(partner, value);
+					} else if (columnName.startsWith("playswith")) {
+						Hero partner = Hero.fromName(columnName.substring(9));
+						String textContent = column.getTextContent();
+						int value = textContent.equals("NULL") ? 0 : Integer.parseInt(textContent);
+						// WEIGHTING WIN-RATES:
+						value += 10;
+						withMap.get(hero).put(partner, value);
+					}
+				}
+			}
+		}
+
+		// convert values into ratio matrix
+		HeroMatrix matrix = new HeroMatrix();
+		for (Hero hero : Hero.values()) {
+			for (Hero other : Hero.values()) {
+				double wins = vsMap.get(hero).get(other);
+				double losses = vsMap.get(other).get(hero);
+				double winsWith = synMap.get(hero).get(other);
+				double playsWith = withMap.get(hero).get(other);
+				matrix.put(hero, other, wins/(wins+losses), false);
+				matrix.put(hero, other, winsWith/(winsWith+playsWith), true);
+			}
+		}
+		return matrix;
+	}
+}
@@ -0,0 +1,80 @@
+package draft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import data.Hero;
+import data.Pick;
+
+class DraftSessionTest {
+
+	@Test
+	void rostersAreLiveViews() {
+		DraftSession session = new DraftSession(Format.DOUBLE_BAN);
+		Roster blue = session.getBlue();
+		session.getBlue().add(Hero.TAKA);
+		session.getRed().add(Hero.VOX);
+
+		assertTrue(blue.getPicked().contains(Hero.TAKA));
+		assertEquals(Hero.TAKA.mask(), session.getState().blueMask());
+		assertEquals(Hero.VOX.mask(), session.getState().redMask());
+		assertFalse(session.currentPool().contains(Hero.TAKA));
+		assertEquals(0, session.currentPhaseNo()); // (adding to a roster is not a phase)
+	}
+
+	@Test
+	void pickingTeamIsLiveToo() {
+		DraftSession session = new DraftSession(Format.SINGLE_BAN);
+		while (!session.currentPhase().isPick())
+			session.pickOrBan(null);
+		session.pickingTeam().add(Hero.RINGO);
+		assertTrue(session.pickingTeam().getPicked().contains(Hero.RINGO));
+		assertEquals(1, session.pickingTeam().size());
+	}
+
+	@Test
+	void clonesAreDetached() {
+		DraftSession session = new DraftSession(Format.DOUBLE_BAN);
+		Roster copy = session.getBlue().clone();
+		copy.add(Hero.TAKA);
+		DraftSession other = session.clone();
+		other.getRed().add(Hero.VOX);
+		DraftSession next = session.whatIf(Hero.ALPHA);
+
+		assertTrue(session.getBlue().isEmpty());
+		assertTrue(session.getRed().isEmpty());
+		assertEquals(0, session.currentPhaseNo());
+		assertEquals(1, next.currentPhaseNo());
+	}
+
+	@Test
+	void fullRosterRefusesMore() {
+		DraftSession session = new DraftSession(Format.DOUBLE_BAN);
+		Roster blue = session.getBlue();
+		blue.fill(Arrays.asList(new Pick(Hero.TAKA, 1), new Pick(Hero.VOX, 1), 
+				new Pick(Hero.RINGO, 1), new Pick(Hero.LYRA, 1)));
+		assertEquals(3, blue.size());
+		assertTrue(blue.isFull());
+		assertThrows(IllegalStateException.class, () -> blue.add(Hero.LYRA));
+	}
+
+	@Test
+	void poolIsInOrdinalOrder() {
+		DraftSession session = new DraftSession(Format.DOUBLE_BAN);
+		session.pickOrBan(Hero.KRUL);
+		session.pickOrBan(Hero.ADAGIO);
+
+		List<Hero> expected = new ArrayList<>(Arrays.asList(Hero.values()));
+		expected.remove(Hero.KRUL);
+		expected.remove(Hero.ADAGIO);
+		assertEquals(expected, new ArrayList<>(session.currentPool()));
+	}
+}
@@ -0,0 +1,114 @@
+package draft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import data.Hero;
+import data.HeroMask;
+
+class DraftStateTest {
+
+	private static final Hero A = Hero.fromOrdinal(0), B = Hero.fromOrdinal(1), C = Hero.fromOrdinal(2), 
+			D = Hero.fromOrdinal(3);
+
+	@Test
+	void transpositionsAreTheSameState() {
+		DraftState empty = new DraftState(Format.DOUBLE_BAN);
+		assertSameState(empty.whatIf(A).whatIf(B), empty.whatIf(B).whatIf(A));
+		// blue and red bans go into one mask, as do skips in either ban
+		assertSameState(empty.whatIf(null).whatIf(A), empty.whatIf(A).whatIf(null));
+		assertSameState(empty.whatIf(A).whatIf(B).whatIf(C).whatIf(D).whatIf(null).whatIf(null),
+				empty.whatIf(B).whatIf(A).whatIf(C).whatIf(D).whatIf(null).whatIf(null));
+	}
+
+	@Test
+	void anyDifferenceIsAnotherState() {
+		DraftState empty = new DraftState(Format.DOUBLE_BAN);
+		DraftState picked = empty.whatIf(A).whatIf(B).whatIf(C); // blue picks C
+		assertNotSameState(picked, empty.whatIf(A).whatIf(C).whatIf(B)); // blue picks B, C is banned
+		assertNotSameState(picked.whatIf(D), empty.whatIf(A).whatIf(B).whatIf(D).whatIf(C)); // the teams swapped
+		assertNotSameState(empty.whatIf(null), empty); // the phase moved on
+		assertNotSameState(new DraftState(Format.SINGLE_BAN).whatIf(A), empty.whatIf(A));
+	}
+
+	@Test
+	void restoredStatesMatchPlayedOnes() {
+		Random random = new Random(7);
+		for (Format format : Format.values())
+			for (int game = 0; game < 200; game++) {
+				DraftState state = new DraftState(format);
+				int phases = random.nextInt(format.size() + 1);
+				for (int i = 0; i < phases; i++)
+					state = state.whatIf(randomChoice(state, random));
+				assertSameState(state, DraftState.of(format, state.blueMask(), state.redMask(), state.bannedMask(),
+						state.currentPhaseNo()));
+			}
+	}
+
+	@Test
+	void distinctStatesHashApart() {
+		// every state two bans in; collisions are possible in principle, but not among these few
+		DraftState empty = new DraftState(Format.DOUBLE_BAN);
+		Map<Long, DraftState> seen = new HashMap<>();
+		List<Hero> bans = new ArrayList<>(List.of(Hero.values()));
+		bans.add(null);
+		for (Hero first : bans)
+			for (Hero second : bans) {
+				if (first != null && first == second)
+					continue;
+				DraftState state = empty.whatIf(first).whatIf(second);
+				DraftState earlier = seen.putIfAbsent(state.zobrist(), state);
+				if (earlier != null)
+					assertEquals(earlier, state);
+			}
+		int heroes = Hero.values().length;
+		assertEquals(1 + heroes + heroes * (heroes - 1) / 2, seen.size());
+	}
+
+	@Test
+	void restoringRejectsImpossibleStates() {
+		assertThrows(IllegalArgumentException.class, () -> DraftState.of(Format.SINGLE_BAN, 0, 0, 0, -1));
+		assertThrows(IllegalArgumentException.class, 
+				() -> DraftState.of(Format.SINGLE_BAN, 0, 0, 0, Format.SINGLE_BAN.size() + 1));
+		assertThrows(IllegalArgumentException.class, () -> DraftState.of(Format.SINGLE_BAN, A.mask(), A.mask(), 0, 4));
+		assertThrows(IllegalArgumentException.class, () -> DraftState.of(Format.SINGLE_BAN, A.mask(), 0, A.mask(), 4));
+		assertThrows(IllegalArgumentException.class, () -> DraftState.of(Format.SINGLE_BAN, ~HeroMask.ALL, 0, 0, 4));
+	}
+
+	@Test
+	void picksCannotBeSkipped() {
+		assertThrows(IllegalArgumentException.class, () -> new DraftState(Format.SINGLE_BAN).whatIf(A).whatIf(B).whatIf(null));
+	}
+
+	/**
+	 * @return a hero from the pool, or for a ban now and then a skip
+	 */
+	private static Hero randomChoice(DraftState state, Random random) {
+		if (!state.currentPhase().isPick() && random.nextInt(8) == 0)
+			return null;
+		List<Hero> pool = new ArrayList<>();
+		for (long mask = state.poolMask(); mask != 0; mask &= mask - 1)
+			pool.add(HeroMask.first(mask));
+		return pool.get(random.nextInt(pool.size()));
+	}
+
+	private static void assertSameState(DraftState expected, DraftState actual) {
+		assertEquals(expected, actual);
+		assertEquals(expected.zobrist(), actual.zobrist());
+		assertEquals(expected.hashCode(), actual.hashCode());
+	}
+
+	private static void assertNotSameState(DraftState one, DraftState other) {
+		assertNotEquals(one, other);
+		assertNotEquals(one.zobrist(), other.zobrist());
+	}
+}
@@ -0,0 +1,112 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import algorithm.Engine;
+import data.Calculator;
+import data.Hero;
+import data.HeroMatrix;
+import data.MatrixLoader;
+import draft.Format;
+
+class CoachServerTest {
+
+	private static HeroMatrix matrix;
+	private final HttpClient client = HttpClient.newHttpClient();
+	private CoachServer server;
+
+	@BeforeAll
+	static void load() throws Exception {
+		matrix = MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"));
+	}
+
+	@AfterEach
+	void stop() {
+		if (server != null)
+			server.stop(0);
+	}
+
+	private void start(Engine engine, long timeoutMillis) throws IOException {
+		server = new CoachServer(engine, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 1, timeoutMillis);
+		server.start();
+	}
+
+	private HttpRequest request(String body) {
+		URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/coach");
+		return HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+	}
+
+	private HttpResponse<String> post(String body) throws IOException, InterruptedException {
+		return client.send(request(body), HttpResponse.BodyHandlers.ofString());
+	}
+
+	@Test
+	void deepNestingIsABadRequest() throws Exception {
+		start(new Engine(new Calculator(matrix)), CoachServer.DEFAULT_TIMEOUT_MILLIS);
+		HttpResponse<String> response = post("{\"format\": \"DOUBLE_BAN\", \"selected\": " + "[".repeat(20_000) + "]");
+		assertEquals(400, response.statusCode());
+		assertTrue(response.body().contains("Nested"), response.body());
+	}
+
+	/**
+	 * One search running and one waiting fill the server; the next request is turned away at once
+	 */
+	@Test
+	void saturatedServersTurnRequestsAway() throws Exception {
+		Engine engine = new Engine(new Calculator(matrix));
+		engine.setForkJoinPool(null);
+		engine.setEndgameThreshold(6); // seconds to run
+		start(engine, CoachServer.DEFAULT_TIMEOUT_MILLIS);
+		for (String session : new String[] { "a", "b" })
+			client.sendAsync(request("{\"format\": \"DOUBLE_BAN\", \"selected\": [], \"session\": \"" + session + "\"}"), 
+					HttpResponse.BodyHandlers.ofString());
+		long deadline = System.nanoTime() + 1_000_000_000L;
+		while (server.getAdmissionController().inFlight() < 2 && System.nanoTime() < deadline)
+			Thread.sleep(1);
+		assertEquals(2, server.getAdmissionController().inFlight());
+
+		long start = System.nanoTime();
+		HttpResponse<String> response = post("{\"format\": \"DOUBLE_BAN\", \"selected\": []}");
+		assertEquals(503, response.statusCode(), response.body());
+		assertTrue(response.body().contains("Too busy"), response.body());
+		assertTrue(System.nanoTime() - start < 1_000_000_000L);
+		assertEquals(2, server.getAdmissionController().inFlight()); // not counted in
+	}
+
+	@Test
+	void timedOutSearchesAreCancelled() throws Exception {
+		// solving all but the first two phases exactly, on one thread: seconds to run to the end
+		Engine engine = new Engine(new Calculator(matrix));
+		engine.setForkJoinPool(null);
+		engine.setEndgameThreshold(6);
+		start(engine, 50);
+		HttpResponse<String> response = post("{\"format\": \"DOUBLE_BAN\", \"selected\": [], \"session\": \"s\"}");
+		assertEquals(504, response.statusCode());
+
+		// the search gives up the one compute thread at the next node, long before it would have finished:
+		// a draft with nothing left to search gets it in time
+		StringBuilder full = new StringBuilder();
+		for (int i = 0; i < Format.DOUBLE_BAN.size(); i++)
+			full.append(i == 0 ? "" : ", ").append('"').append(Hero.fromOrdinal(i).getName()).append('"');
+		long deadline = System.nanoTime() + 1_000_000_000L;
+		do
+			response = post("{\"format\": \"DOUBLE_BAN\", \"selected\": [" + full + "]}");
+		while (response.statusCode() != 200 && System.nanoTime() < deadline);
+		assertEquals(200, response.statusCode(), response.body());
+		assertEquals(0, server.getAdmissionController().inFlight());
+	}
+}
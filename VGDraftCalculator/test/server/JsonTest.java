@@ -0,0 +1,64 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class JsonTest {
+
+	@Test
+	void parsesRequests() {
+		Map<?, ?> json = (Map<?, ?>) Json.parse(" {\"format\": \"DOUBLE_BAN\", \"selected\": [\"Taka\", \"Kr\\u00fcl\"], "
+				+ "\"budgetMillis\": 2e2, \"session\": null, \"x\": [true, false, {}]} ");
+		assertEquals("DOUBLE_BAN", json.get("format"));
+		assertEquals(List.of("Taka", "Kr\u00fcl"), json.get("selected"));
+		assertEquals(200.0, json.get("budgetMillis"));
+		assertEquals(Arrays.asList(true, false, Map.of()), json.get("x"));
+	}
+
+	@Test
+	void writesFlatObjects() {
+		assertEquals("{\"a\":1,\"b\":\"q\\\"\\n\",\"c\":null}", Json.write(new java.util.LinkedHashMap<String, Object>() {
+			private static final long serialVersionUID = 1L;
+			{
+				put("a", 1);
+				put("b", "q\"\n");
+				put("c", null);
+			}
+		}));
+	}
+
+	@Test
+	void refusesDeepNesting() {
+		assertEquals(nested(Json.MAX_DEPTH - 1), Json.parse(open(Json.MAX_DEPTH) + close(Json.MAX_DEPTH)));
+		assertThrows(IllegalArgumentException.class, () -> Json.parse(open(Json.MAX_DEPTH + 1) + close(Json.MAX_DEPTH + 1)));
+		// far past what the stack would take, and unterminated too
+		assertThrows(IllegalArgumentException.class, () -> Json.parse(open(1_000_000)));
+	}
+
+	@Test
+	void refusesMalformedText() {
+		for (String text : List.of("", "{", "[1,]", "{\"a\" 1}", "\"\\x\"", "tru", "1 2", "{1: 2}"))
+			assertThrows(IllegalArgumentException.class, () -> Json.parse(text), text);
+	}
+
+	private static String open(int depth) {
+		return "[".repeat(depth);
+	}
+
+	private static String close(int depth) {
+		return "]".repeat(depth);
+	}
+
+	/**
+	 * @return an empty list in as many more lists
+	 */
+	private static List<?> nested(int depth) {
+		return depth == 0 ? List.of() : List.of(nested(depth - 1));
+	}
+}
@@ -0,0 +1,31 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with JMH's usual command line, always reporting allocation rates (the {@code gc} profiler)
+ * alongside throughput and average time.
+ * <p>
+ * {@code java -jar benchmarks/target/benchmarks.jar} runs them all; e.g. {@code Scoring -p matrix=VG8} runs some.
+ * {@code -h} lists the options.
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		try {
+			new Runner(options).run();
+		} catch (RunnerException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
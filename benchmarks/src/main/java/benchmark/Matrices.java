@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.nio.file.Paths;
+import java.util.Random;
+
+import algorithm.Algorithm;
+import algorithm.Engine;
+import data.Calculator;
+import data.Hero;
+import data.HeroMask;
+import data.HeroMatrix;
+import data.MatrixLoader;
+import draft.DraftSession;
+import draft.DraftState;
+import draft.Format;
+
+/**
+ * The data the benchmarks run on, the same from run to run
+ */
+final class Matrices {
+
+	/** the VG8 matrices shipped with the calculator */
+	static final String VG8 = "VG8";
+	/** simulated data, seeded */
+	static final String RANDOM = "RANDOM";
+	static final long SEED = 8L;
+
+	private Matrices() {}
+
+	static HeroMatrix load(String matrix) throws Exception {
+		switch (matrix) {
+			case VG8:
+				return MatrixLoader.load(Paths.get("VG8VersusMatrix.xml"), Paths.get("VG8SynergyMatrix.xml"));
+			case RANDOM:
+				return MatrixLoader.loadRandom(SEED);
+			default:
+				throw new IllegalArgumentException("Unknown matrix: " + matrix);
+		}
+	}
+
+	/**
+	 * @return a state after the given number of phases, each hero drawn at random from the pool
+	 */
+	static DraftState randomState(Format format, int phases, Random rand) {
+		DraftState state = new DraftState(format);
+		for (int i = 0; i < phases && !state.isFull(); i++) {
+			long pool = state.poolMask();
+			int skip = rand.nextInt(HeroMask.size(pool));
+			for (int j = 0; j < skip; j++)
+				pool &= pool - 1; // drop the lowest
+			state = state.whatIf(HeroMask.first(pool));
+		}
+		return state;
+	}
+
+	/**
+	 * @return the state at the given phase, reached by always playing the greedy choice:
+	 * 		a realistic line of play that does not depend on the search being measured
+	 */
+	static DraftState greedyLine(Calculator calculator, Format format, int phase) {
+		Engine engine = new Engine(calculator);
+		DraftSession session = new DraftSession(format);
+		for (int i = 0; i < phase; i++) {
+			Hero next = engine.suggestions(session, Algorithm.GREEDY).get(0).getCandidate();
+			session.pickOrBan(next);
+		}
+		return session.getState();
+	}
+}
@@ -0,0 +1,133 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import algorithm.Engine;
+import algorithm.TranspositionTable;
+import data.Calculator;
+import data.Hero;
+import data.HeroMask;
+import data.HeroMatrix;
+import draft.DraftState;
+import draft.DraftTally;
+import draft.Format;
+
+/**
+ * The scoring kernels every search spends its time in, over a fixed set of random mid-draft positions,
+ * cycled through so that no single one is learnt by the branch predictor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+	private static final int POSITIONS = 256; // a power of two
+	private static final Hero[] HEROES = Hero.values();
+
+	@Param({Matrices.VG8, Matrices.RANDOM})
+	public String matrix;
+
+	private HeroMatrix meta;
+	private Calculator calculator;
+	private Engine warm;
+	private Engine cold;
+	private DraftState[] states;
+	private DraftTally[] tallies;
+	private Hero[] candidates;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void load() throws Exception {
+		meta = Matrices.load(matrix);
+		calculator = new Calculator(meta);
+		warm = new Engine(calculator);
+
+		Random rand = new Random(Matrices.SEED);
+		states = new DraftState[POSITIONS];
+		tallies = new DraftTally[POSITIONS];
+		candidates = new Hero[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) {
+			Format format = Format.values()[i % Format.values().length];
+			states[i] = Matrices.randomState(format, 1 + rand.nextInt(format.size() - 1), rand);
+			tallies[i] = calculator.tally().reset(states[i]);
+			long pool = states[i].poolMask();
+			candidates[i] = HeroMask.first(pool == HeroMask.NONE ? HeroMask.ALL : pool);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void coldEngine() {
+		cold = new Engine(calculator, new TranspositionTable(1, TranspositionTable.Eviction.DEPTH_PREFERRED));
+	}
+
+	private int next() {
+		return next = (next + 1) & (POSITIONS - 1);
+	}
+
+	@Benchmark
+	public Double matrixGet() {
+		int i = next();
+		return meta.get(HEROES[i % HEROES.length], HEROES[(i * 7 + 3) % HEROES.length], (i & 1) == 0);
+	}
+
+	@Benchmark
+	public double matrixLogOdds() {
+		int i = next();
+		return meta.logOdds(HEROES[i % HEROES.length], HEROES[(i * 7 + 3) % HEROES.length], (i & 1) == 0);
+	}
+
+	@Benchmark
+	public double scorePlusSynergy() {
+		return calculator.scorePlusSynergy(states[next()]);
+	}
+
+	@Benchmark
+	public double logScorePlusSynergyTally() {
+		return calculator.logScorePlusSynergy(tallies[next()]);
+	}
+
+	@Benchmark
+	public double marginalScore() {
+		int i = next();
+		return calculator.marginalScore(candidates[i], states[i].pickingTeam(), states[i].enemyTeam());
+	}
+
+	@Benchmark
+	public double logMarginalScoreTally() {
+		int i = next();
+		return calculator.logMarginalScore(candidates[i], tallies[i], (i & 1) == 0);
+	}
+
+	/**
+	 * Greedy fills with the engine's table, as they run deep in a search: mostly table hits
+	 */
+	@Benchmark
+	public Double fillAndScoreWarm() {
+		return warm.fillAndScore(states[next()]);
+	}
+
+	/**
+	 * Greedy fills as good as uncached: a one-entry table, so nearly every position is played out
+	 */
+	@Benchmark
+	public Double fillAndScoreCold() {
+		return cold.fillAndScore(states[next()]);
+	}
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import algorithm.Engine;
+import data.Calculator;
+import data.Pick;
+import draft.DraftSession;
+import draft.DraftState;
+import draft.Format;
+
+/**
+ * End-to-end {@link Engine#suggestions(DraftSession)}, at every phase of both formats.
+ * Each call gets a new engine, so that it searches from scratch rather than answering from the engine's caches;
+ * the allocation figures include that engine's tables, which dominate them in the last phases.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuggestionsBenchmark {
+
+	@Param({Matrices.VG8, Matrices.RANDOM})
+	public String matrix;
+
+	/** format and phase number, e.g. {@code DOUBLE_BAN:4} */
+	@Param({"SINGLE_BAN:0", "SINGLE_BAN:1", "SINGLE_BAN:2", "SINGLE_BAN:3",
+			"SINGLE_BAN:4", "SINGLE_BAN:5", "SINGLE_BAN:6", "SINGLE_BAN:7",
+			"DOUBLE_BAN:0", "DOUBLE_BAN:1", "DOUBLE_BAN:2", "DOUBLE_BAN:3", "DOUBLE_BAN:4",
+			"DOUBLE_BAN:5", "DOUBLE_BAN:6", "DOUBLE_BAN:7", "DOUBLE_BAN:8", "DOUBLE_BAN:9"})
+	public String position;
+
+	private Calculator calculator;
+	private DraftState state;
+	private Engine engine;
+	private DraftSession session;
+
+	@Setup(Level.Trial)
+	public void load() throws Exception {
+		calculator = new Calculator(Matrices.load(matrix));
+		String[] split = position.split(":");
+		Format format = Format.valueOf(split[0]);
+		int phase = Integer.parseInt(split[1]);
+		if (phase >= format.size())
+			throw new IllegalArgumentException(format + " has only " + format.size() + " phases");
+		state = Matrices.greedyLine(calculator, format, phase);
+	}
+
+	/**
+	 * Per call, though it costs a little to make: searches take milliseconds, so the setup is noise
+	 */
+	@Setup(Level.Invocation)
+	public void freshEngine() {
+		engine = new Engine(calculator);
+		session = new DraftSession(state);
+	}
+
+	@Benchmark
+	public List<Pick> suggestions() {
+		return engine.suggestions(session);
+	}
+}